@@ -0,0 +1,150 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Successively tighter intervals containing the probabilistic bisimilarity distance of a pair of
+ * states.  Only the pairs reachable from the given pair through the products of the transition
+ * supports are considered, apart from those at distance zero or one.  The lower bounds are the
+ * distance iterates starting from zero; the upper bounds are the iterates starting from one, with
+ * the bisimilar pairs at zero, for which every step computes a better coupling.  Both are updated
+ * in place, which keeps them bounds, and converge to the distance.  The caller can stop at any
+ * point, for example on a deadline or once the interval is narrow enough.
+ */
+public class AnytimeDistance implements Iterator<AnytimeDistance.Interval> {
+  final double delta = 1e-10; //a precision factor to test approximate equality
+
+  private final double[][] probabilities;
+  private final int[] labels;
+  private final int states;
+  private final ZeroOneDistances extremes;
+  private final ArrayList<int[]> pairs;
+  private final HashMap<Long, Integer> index;
+  private final double[] lower;
+  private final double[] upper;
+  private Interval interval;
+  private boolean started;
+
+  /**
+   * An interval containing the distance.
+   */
+  public static class Interval {
+    public final double lower;
+    public final double upper;
+
+    public Interval(double lower, double upper) {
+      this.lower = lower;
+      this.upper = upper;
+    }
+
+    public double width() {
+      return upper - lower;
+    }
+
+    @Override
+    public String toString() {
+      return "[" + lower + ", " + upper + "]";
+    }
+  }
+
+  public AnytimeDistance(double[][] probabilities, int[] labels, int s, int t) {
+    this(probabilities, labels, s, t, new ZeroOneDistances(probabilities, labels, 8));
+  }
+
+  //The pairs at distance zero and one may be shared by several queries.
+  AnytimeDistance(double[][] probabilities, int[] labels, int s, int t, ZeroOneDistances extremes) {
+    this.probabilities = probabilities;
+    this.labels = labels;
+    this.states = labels.length;
+    this.extremes = extremes;
+    this.pairs = new ArrayList<>();
+    this.index = new HashMap<>();
+
+    //the total variation distance is an upper bound and the difference in label mass a lower bound
+    double distance = decided(s, t);
+    if (distance >= 0) {
+      this.interval = new Interval(distance, distance);
+    } else {
+      DistanceBounds bounds = new DistanceBounds(probabilities, labels);
+      this.interval = new Interval(bounds.lower(s, t), bounds.upper(s, t));
+
+      int[][] support = PairGraph.supports(probabilities, delta);
+      index.put(key(s, t), 0);
+      pairs.add(new int[]{Math.min(s, t), Math.max(s, t)});
+      for (int p = 0; p < pairs.size(); p++) {
+        int[] pair = pairs.get(p);
+        for (int u : support[pair[0]]) {
+          for (int v : support[pair[1]]) {
+            if (decided(u, v) < 0 && !index.containsKey(key(u, v))) {
+              index.put(key(u, v), pairs.size());
+              pairs.add(new int[]{Math.min(u, v), Math.max(u, v)});
+            }
+          }
+        }
+      }
+    }
+    this.lower = new double[pairs.size()];
+    this.upper = new double[pairs.size()];
+    Arrays.fill(this.upper, 1.0);
+    this.started = false;
+  }
+
+  //Returns the distance of (u, v) if it is known up front, and -1 otherwise.
+  private double decided(int u, int v) {
+    if (labels[u] != labels[v] || extremes.is_one(u, v)) {
+      return 1.0;
+    } else if (extremes.is_zero(u, v)) {
+      return 0.0;
+    } else {
+      return -1.0;
+    }
+  }
+
+  //The key of the unordered pair {u, v}.
+  private long key(int u, int v) {
+    return (long) Math.min(u, v) * states + Math.max(u, v);
+  }
+
+  /**
+   * Returns whether a tighter interval may follow.
+   *
+   * @return false once the lower and upper bound coincide
+   */
+  @Override
+  public boolean hasNext() {
+    return !started || interval.width() > delta;
+  }
+
+  /**
+   * Returns the next interval.  The first interval follows from cheap bounds; every later one
+   * from one more in-place pass over the reachable pairs for both the lower and the upper bounds.
+   *
+   * @return an interval containing the distance, at least as tight as the previous one
+   */
+  @Override
+  public Interval next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    if (started) {
+      OptimalCouplingComputer.DistanceFunction below = (u, v) -> {
+        double distance = decided(u, v);
+        return distance >= 0 ? distance : lower[index.get(key(u, v))];
+      };
+      OptimalCouplingComputer.DistanceFunction above = (u, v) -> {
+        double distance = decided(u, v);
+        return distance >= 0 ? distance : upper[index.get(key(u, v))];
+      };
+      for (int p = 0; p < pairs.size(); p++) {
+        int[] pair = pairs.get(p);
+        lower[p] = Math.max(lower[p], new OptimalCouplingComputer(pair[0], pair[1], probabilities, below).compute_distance());
+        upper[p] = Math.min(upper[p], new OptimalCouplingComputer(pair[0], pair[1], probabilities, above).compute_distance());
+      }
+      interval = new Interval(Math.max(interval.lower, lower[0]), Math.min(interval.upper, upper[0]));
+    }
+    started = true;
+    return interval;
+  }
+}
@@ -0,0 +1,28 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnytimeDistanceTest {
+  @Test
+  public void test_intervals() {
+    int states = 20;
+    int labels = 3;
+
+    LabelledMarkovChain LMC = Main.getRandomInstance(states, labels);
+    double[][] distances = new DistanceComputer(LMC.probability, LMC.label).compute_distances();
+
+    for (int s = 0; s < states; s++) {
+      int t = (s + 1) % states;
+      AnytimeDistance anytime = LMC.anytime_distance(s, t);
+      AnytimeDistance.Interval previous = new AnytimeDistance.Interval(0.0, 1.0);
+      for (int i = 0; i < 100 && anytime.hasNext(); i++) {
+        AnytimeDistance.Interval interval = anytime.next();
+        assertTrue(interval.lower <= distances[s][t] + 1e-8);
+        assertTrue(distances[s][t] <= interval.upper + 1e-8);
+        assertTrue(previous.lower <= interval.lower && interval.upper <= previous.upper);
+        previous = interval;
+      }
+      assertTrue(previous.width() < 1e-3);
+    }
+  }
+}
@@ -0,0 +1,73 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of bounded size that evicts the least recently used entry and counts hits and misses.
+ * The cache can be shared by multiple threads.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public class Cache<K, V> {
+  private final LinkedHashMap<K, V> entries;
+  private long hits;
+  private long misses;
+
+  /**
+   * Initializes this cache as empty.
+   *
+   * @param capacity the maximum number of entries
+   */
+  public Cache(final int capacity) {
+    this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  /**
+   * Returns the value associated with the given key, or null if there is none.
+   *
+   * @param key a key
+   * @return the value associated with the given key, or null if there is none
+   */
+  public synchronized V get(K key) {
+    V value = entries.get(key);
+    if (value == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return value;
+  }
+
+  public synchronized void put(K key, V value) {
+    entries.put(key, value);
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized long get_hits() {
+    return hits;
+  }
+
+  public synchronized long get_misses() {
+    return misses;
+  }
+
+  public synchronized double get_hit_rate() {
+    long lookups = hits + misses;
+    return lookups == 0 ? 0.0 : (double) hits / lookups;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("%d hits, %d misses, hit rate %.3f", hits, misses, get_hit_rate());
+  }
+}
@@ -0,0 +1,135 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cheap bounds on the distance of a pair of states, checked before an optimal coupling or a
+ * Kantorovich-Rubinstein dual is computed.  The total variation distance of the transition
+ * distributions is an upper bound.  The difference of the probabilities of moving to a state with
+ * a given label is a lower bound, provided that states with different labels are at distance one.
+ * When the two bounds coincide, the distance is known without solving a linear program, and the
+ * indicator function of that label is an optimal dual.
+ */
+public class DistanceBounds {
+  final double delta = 1e-10; //a precision factor to test approximate equality
+
+  private final double[][] probabilities;
+  private final int[] labels;
+  private final double[][] mass; //mass[s][l] is the probability of moving from s to a state labelled l
+  private final AtomicLong considered = new AtomicLong();
+  private final AtomicLong pruned = new AtomicLong();
+
+  public DistanceBounds(double[][] probabilities, int[] labels) {
+    this.probabilities = probabilities;
+    this.labels = labels;
+    int number_of_labels = 0;
+    for (int l : labels) {
+      number_of_labels = Math.max(number_of_labels, l + 1);
+    }
+    this.mass = new double[probabilities.length][number_of_labels];
+    for (int s = 0; s < probabilities.length; s++) {
+      for (int u = 0; u < probabilities.length; u++) {
+        this.mass[s][labels[u]] += probabilities[s][u];
+      }
+    }
+  }
+
+  //The total variation distance of the transition distributions of s and t.
+  public double upper(int s, int t) {
+    double upper = 0.0;
+    for (int u = 0; u < probabilities.length; u++) {
+      upper += Math.max(0.0, probabilities[s][u] - probabilities[t][u]);
+    }
+    return upper;
+  }
+
+  //The largest difference of the probabilities of moving to a state with the same label.
+  public double lower(int s, int t) {
+    int l = best_label(s, t);
+    return Math.abs(mass[s][l] - mass[t][l]);
+  }
+
+  private int best_label(int s, int t) {
+    int best = 0;
+    for (int l = 1; l < mass[s].length; l++) {
+      if (Math.abs(mass[s][l] - mass[t][l]) > Math.abs(mass[s][best] - mass[t][best])) {
+        best = l;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Tests whether the states with different labels are at distance one in the given distance
+   * matrix, which is needed for the lower bound to be valid.
+   *
+   * @param distances distance matrix
+   * @return true if the lower bound is valid for the given distance matrix
+   */
+  public boolean separates_labels(double[][] distances) {
+    for (int u = 0; u < labels.length; u++) {
+      for (int v = 0; v < labels.length; v++) {
+        if (labels[u] != labels[v] && distances[u][v] < 1.0) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the distance of s and t if the bounds coincide, and null otherwise.
+   *
+   * @param s         a state
+   * @param t         a state
+   * @param separates whether the states with different labels are at distance one
+   * @return the distance of s and t, or null if the bounds do not coincide
+   */
+  public Double distance(int s, int t, boolean separates) {
+    considered.incrementAndGet();
+    double upper = upper(s, t);
+    if (upper < delta || (separates && upper - lower(s, t) < delta)) {
+      pruned.incrementAndGet();
+      return upper;
+    }
+    return null;
+  }
+
+  /**
+   * Returns an optimal Kantorovich-Rubinstein dual for (s, t), which maximizes the expectation
+   * under tau(t) minus the expectation under tau(s), if the bounds coincide, and null otherwise.
+   *
+   * @param s         a state
+   * @param t         a state
+   * @param separates whether the states with different labels are at distance one
+   * @return an optimal dual, or null if the bounds do not coincide
+   */
+  public double[] dual(int s, int t, boolean separates) {
+    considered.incrementAndGet();
+    double upper = upper(s, t);
+    if (upper < delta) {
+      pruned.incrementAndGet();
+      return new double[probabilities.length]; //the same distributions, so every dual is optimal
+    } else if (separates) {
+      int l = best_label(s, t);
+      if (upper - Math.abs(mass[s][l] - mass[t][l]) < delta) {
+        pruned.incrementAndGet();
+        boolean positive = mass[t][l] > mass[s][l];
+        double[] dual = new double[probabilities.length];
+        for (int u = 0; u < probabilities.length; u++) {
+          dual[u] = (labels[u] == l) == positive ? 1.0 : 0.0;
+        }
+        return dual;
+      }
+    }
+    return null;
+  }
+
+  public double get_pruned_fraction() {
+    long total = considered.get();
+    return total == 0 ? 0.0 : (double) pruned.get() / total;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d of %d pairs pruned (%.3f)", pruned.get(), considered.get(), get_pruned_fraction());
+  }
+}
@@ -0,0 +1,313 @@
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.LUDecomposition;
+import org.apache.commons.math3.linear.RealVector;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Set;
+
+/**
+ * Computes the probabilistic bisimilarity distances of all pairs of states of a labelled Markov
+ * chain by means of policy iteration over couplings.  Bisimilar pairs are set to zero and pairs
+ * at distance one, such as pairs with different labels, to one up front (see ZeroOneDistances).
+ * For the remaining pairs, a policy assigns a coupling to
+ * every pair.  The policy is evaluated by solving a system of linear equations and improved by
+ * replacing each coupling by an optimal one with respect to the current distances, until no
+ * coupling improves.
+ *
+ * <p>
+ * The distance of a single pair can also be computed on the fly, in which case only the pairs
+ * reachable from that pair through the products of the transition supports are considered.
+ *
+ * <p>
+ * The pairs are solved per strongly connected component of the graph of pairs, in reverse
+ * topological order.  The acyclic parts of the graph are thus computed in a single backward pass,
+ * and policy iteration is only needed within nontrivial components.
+ *
+ * <p>
+ * Qiyi Tang and Franck van Breugel.  Computing probabilistic bisimilarity distances via policy
+ * iteration.  In <i>Proceedings of CONCUR</i>, 2016.
+ */
+public class DistanceComputer {
+  final double delta = 1e-10; //a precision factor to test approximate equality
+  final int precision = 8; //the precision of the transition probabilities used to decide bisimilarity
+
+  private final double[][] probabilities;
+  private final int[] labels;
+  private final int states;
+  private final int[][] support; //the states reachable from each state in one transition
+  private ZeroOneDistances extremes;
+  private final HashMap<Long, Double> solved; //the distances of the pairs explored by compute_distance
+  private int iterations;
+
+  public DistanceComputer(double[][] probabilities, int[] labels) {
+    this.probabilities = probabilities;
+    this.labels = labels;
+    this.states = labels.length;
+    this.support = PairGraph.supports(probabilities, delta);
+    this.solved = new HashMap<>();
+    this.iterations = 0;
+  }
+
+  //Decide probabilistic bisimilarity; the labels are renumbered consecutively, as ProbabilisticBisimilarity expects.
+  static boolean[][] bisimilar(double[][] probabilities, int[] labels, int precision) {
+    int states = labels.length;
+    int[] consecutive = new int[states];
+    HashMap<Integer, Integer> number = new HashMap<>();
+    for (int s = 0; s < states; s++) {
+      Integer l = number.get(labels[s]);
+      if (l == null) {
+        l = number.size();
+        number.put(labels[s], l);
+      }
+      consecutive[s] = l;
+    }
+
+    boolean[][] bisimilar = new boolean[states][states];
+    for (Set<Integer> block : new ProbabilisticBisimilarity(probabilities, consecutive, precision).decide()) {
+      for (int s : block) {
+        for (int t : block) {
+          bisimilar[s][t] = true;
+        }
+      }
+    }
+    return bisimilar;
+  }
+
+  //The pairs at distance zero and one are decided once and shared by all queries.
+  private ZeroOneDistances extremes() {
+    if (extremes == null) {
+      extremes = new ZeroOneDistances(probabilities, labels, precision);
+    }
+    return extremes;
+  }
+
+  //Returns the distance of (u, v) if it is known up front or solved by an earlier query, and -1 otherwise.
+  double decided(int u, int v) {
+    if (labels[u] != labels[v] || extremes().is_one(u, v)) {
+      return 1.0;
+    } else if (extremes().is_zero(u, v)) {
+      return 0.0;
+    } else {
+      Double distance = solved.isEmpty() ? null : solved.get((long) Math.min(u, v) * states + Math.max(u, v));
+      return distance == null ? -1.0 : distance;
+    }
+  }
+
+  /**
+   * Returns the probabilistic bisimilarity distances of all pairs of states.
+   *
+   * @return the probabilistic bisimilarity distances
+   */
+  public double[][] compute_distances() {
+    //the pairs (u, v) with u < v whose distance is not known up front
+    ArrayList<int[]> pairs = new ArrayList<>();
+    for (int u = 0; u < states; u++) {
+      for (int v = u + 1; v < states; v++) {
+        if (decided(u, v) < 0) {
+          pairs.add(new int[]{u, v});
+        }
+      }
+    }
+    PairGraph graph = new PairGraph(support, pairs);
+    double[] values = solve(graph);
+
+    double[][] distances = new double[states][states];
+    for (int u = 0; u < states; u++) {
+      for (int v = 0; v < states; v++) {
+        double distance = decided(u, v);
+        distances[u][v] = distance >= 0 ? distance : values[graph.index_of(u, v)];
+      }
+    }
+    return distances;
+  }
+
+  /**
+   * Returns the probabilistic bisimilarity distance of the given pair of states.  Only the pairs
+   * reachable from (s, t) through the product of the transition supports are explored, skipping
+   * the pairs whose distance is known up front, and only for those couplings are computed.  The
+   * distances of all explored pairs are kept, so that later queries do not explore them again.
+   *
+   * @param s a state
+   * @param t a state
+   * @return the probabilistic bisimilarity distance of s and t
+   */
+  public double compute_distance(int s, int t) {
+    iterations = 0;
+    double distance = decided(s, t);
+    if (distance >= 0) {
+      return distance;
+    }
+
+    ArrayList<int[]> pairs = new ArrayList<>();
+    HashSet<Long> found = new HashSet<>();
+    pairs.add(new int[]{Math.min(s, t), Math.max(s, t)});
+    found.add((long) Math.min(s, t) * states + Math.max(s, t));
+    for (int p = 0; p < pairs.size(); p++) {
+      int[] pair = pairs.get(p);
+      for (int u : support[pair[0]]) {
+        for (int v : support[pair[1]]) {
+          if (decided(u, v) < 0 && found.add((long) Math.min(u, v) * states + Math.max(u, v))) {
+            pairs.add(new int[]{Math.min(u, v), Math.max(u, v)});
+          }
+        }
+      }
+    }
+    double[] values = solve(new PairGraph(support, pairs));
+    for (int p = 0; p < pairs.size(); p++) {
+      solved.put((long) pairs.get(p)[0] * states + pairs.get(p)[1], values[p]);
+    }
+    return values[0];
+  }
+
+  /**
+   * Returns the distances of the pairs of the given graph.  The strongly connected components are
+   * solved in reverse topological order, so that the distances of the pairs a component depends on
+   * are final by the time it is solved.  The distance of a pair in a trivial component follows from
+   * a single optimal coupling; only nontrivial components need policy iteration.  The number of
+   * iterations is the largest number of policy iterations of a component.
+   */
+  private double[] solve(PairGraph graph) {
+    double[] values = new double[graph.size()];
+    OptimalCouplingComputer.DistanceFunction distances = (u, v) -> {
+      double distance = decided(u, v);
+      return distance >= 0 ? distance : values[graph.index_of(u, v)];
+    };
+
+    iterations = 0;
+    for (int[] component : graph.components()) {
+      if (graph.is_trivial(component)) {
+        int[] pair = graph.get_pair(component[0]);
+        values[component[0]] = new OptimalCouplingComputer(pair[0], pair[1], probabilities, distances).compute_distance();
+      } else {
+        iterations = Math.max(iterations, policy_iteration(graph, component, values, distances));
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Computes the distances of the pairs of the given component by policy iteration, given the
+   * distances of the pairs of the components it depends on, and returns the number of iterations.
+   */
+  private int policy_iteration(PairGraph graph, int[] component, double[] values,
+                               OptimalCouplingComputer.DistanceFunction distances) {
+    //the initial policy consists of the couplings given by the North West corner method
+    OptimalCouplingComputer.Coupling[] policy = new OptimalCouplingComputer.Coupling[component.length];
+    for (int c = 0; c < component.length; c++) {
+      int[] pair = graph.get_pair(component[c]);
+      policy[c] = new OptimalCouplingComputer(pair[0], pair[1], probabilities, distances).get_coupling();
+    }
+
+    int iterations = 0;
+    boolean improved = true;
+    while (improved) {
+      iterations++;
+      evaluate(graph, component, policy, values);
+
+      improved = false;
+      for (int c = 0; c < component.length; c++) {
+        int[] pair = graph.get_pair(component[c]);
+        OptimalCouplingComputer o = new OptimalCouplingComputer(pair[0], pair[1], probabilities, distances);
+        if (o.compute_distance() < values[component[c]] - delta) {
+          policy[c] = o.get_coupling();
+          improved = true;
+        }
+      }
+    }
+    return iterations;
+  }
+
+  /**
+   * Evaluates the given policy of the given component: the distance of a pair is the probability
+   * that the chain of coupled pairs, following the policy, leaves the component, weighted by the
+   * distance of the pair it leaves to, where pairs with different labels are at distance one.  Pairs
+   * that cannot reach a pair outside the component at positive distance get distance zero; for the
+   * other pairs a system of linear equations is solved.
+   */
+  private void evaluate(PairGraph graph, int[] component, OptimalCouplingComputer.Coupling[] policy,
+                        double[] values) {
+    int size = component.length;
+    HashMap<Integer, Integer> member = new HashMap<>();
+    for (int c = 0; c < size; c++) {
+      member.put(component[c], c);
+    }
+
+    //find the pairs that can reach a pair outside the component at positive distance
+    ArrayList<LinkedList<Integer>> predecessors = new ArrayList<>();
+    for (int c = 0; c < size; c++) {
+      predecessors.add(new LinkedList<>());
+    }
+    boolean[] reaches = new boolean[size];
+    double[] constant = new double[size];
+    LinkedList<Integer> queue = new LinkedList<>();
+    for (int c = 0; c < size; c++) {
+      OptimalCouplingComputer.Coupling coupling = policy[c];
+      for (int k = 0; k < coupling.size; k++) {
+        int u = coupling.first[k];
+        int v = coupling.second[k];
+        Integer d = labels[u] != labels[v] ? null : member.get(graph.index_of(u, v));
+        if (d != null) {
+          predecessors.get(d).add(c);
+        } else {
+          double distance = decided(u, v);
+          constant[c] += coupling.probability[k] * (distance >= 0 ? distance : values[graph.index_of(u, v)]);
+        }
+      }
+      if (constant[c] > 0.0) {
+        reaches[c] = true;
+        queue.add(c);
+      }
+    }
+    while (!queue.isEmpty()) {
+      for (int c : predecessors.get(queue.remove())) {
+        if (!reaches[c]) {
+          reaches[c] = true;
+          queue.add(c);
+        }
+      }
+    }
+
+    //number the pairs that can reach a pair outside the component at positive distance
+    int[] variable = new int[size];
+    int variables = 0;
+    for (int c = 0; c < size; c++) {
+      variable[c] = reaches[c] ? variables++ : -1;
+    }
+
+    double[] solution = new double[0];
+    if (variables > 0) {
+      Array2DRowRealMatrix matrix = new Array2DRowRealMatrix(variables, variables);
+      RealVector vector = new ArrayRealVector(variables);
+      for (int c = 0; c < size; c++) {
+        if (reaches[c]) {
+          int i = variable[c];
+          matrix.addToEntry(i, i, 1.0);
+          vector.setEntry(i, constant[c]);
+          OptimalCouplingComputer.Coupling coupling = policy[c];
+          for (int k = 0; k < coupling.size; k++) {
+            int u = coupling.first[k];
+            int v = coupling.second[k];
+            Integer d = labels[u] != labels[v] ? null : member.get(graph.index_of(u, v));
+            if (d != null && reaches[d]) {
+              matrix.addToEntry(i, variable[d], -coupling.probability[k]);
+            }
+          }
+        }
+      }
+      solution = new LUDecomposition(matrix).getSolver().solve(vector).toArray();
+    }
+
+    for (int c = 0; c < size; c++) {
+      values[component[c]] = reaches[c] ? Math.min(1.0, Math.max(0.0, solution[variable[c]])) : 0.0;
+    }
+  }
+
+  //The number of policy iterations of the last computation.
+  public int get_iterations() {
+    return iterations;
+  }
+}
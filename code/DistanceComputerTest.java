@@ -0,0 +1,169 @@
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DistanceComputerTest {
+  @Test
+  public void test_fixpoint() {
+    int states = 30;
+    int labels = 3;
+
+    LabelledMarkovChain LMC = Main.getRandomInstance(states, labels);
+    double[][] distances = new DistanceComputer(LMC.probability, LMC.label).compute_distances();
+
+    for (int s = 0; s < states; s++) {
+      for (int t = 0; t < states; t++) {
+        assertEquals(distances[s][t], distances[t][s], 1e-10);
+        if (LMC.label[s] != LMC.label[t]) {
+          assertEquals(1.0, distances[s][t], 1e-10);
+        } else if (s != t && is_live(LMC.probability[s]) == is_live(LMC.probability[t])) {
+          LinearProgrammingSolver solver = new LinearProgrammingSolver(s, t, LMC.probability, distances);
+          assertEquals(solver.compute_distance(), distances[s][t], 1e-8);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void test_single_pair() {
+    int states = 30;
+    int labels = 3;
+
+    LabelledMarkovChain LMC = Main.getRandomInstance(states, labels);
+    DistanceComputer computer = new DistanceComputer(LMC.probability, LMC.label);
+    double[][] distances = computer.compute_distances();
+
+    for (int s = 0; s < states; s++) {
+      int t = (s + 1) % states;
+      assertEquals(distances[s][t], computer.compute_distance(s, t), 1e-8);
+      assertEquals(distances[t][s], computer.compute_distance(t, s), 1e-8);
+    }
+  }
+
+  @Test
+  public void test_acyclic() {
+    int states = 30;
+    int labels = 3;
+
+    //every state only transitions to states with a larger index, except for the last one
+    LabelledMarkovChain LMC = Main.getRandomInstance(states, labels);
+    for (int s = 0; s < states; s++) {
+      double sum = 0.0;
+      for (int u = 0; u <= s && s < states - 1; u++) {
+        LMC.probability[s][u] = 0.0;
+      }
+      for (int u = 0; u < states; u++) {
+        sum += LMC.probability[s][u];
+      }
+      if (sum == 0.0) {
+        LMC.probability[s][s] = 1.0;
+        sum = 1.0;
+      }
+      for (int u = 0; u < states; u++) {
+        LMC.probability[s][u] /= sum;
+      }
+    }
+    double[][] distances = new DistanceComputer(LMC.probability, LMC.label).compute_distances();
+
+    for (int s = 0; s < states; s++) {
+      for (int t = 0; t < states; t++) {
+        if (LMC.label[s] == LMC.label[t] && s != t) {
+          LinearProgrammingSolver solver = new LinearProgrammingSolver(s, t, LMC.probability, distances);
+          assertEquals(solver.compute_distance(), distances[s][t], 1e-8);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void test_file_distances() throws IOException {
+    int states = 30;
+    int labels = 3;
+
+    LabelledMarkovChain LMC = Main.getRandomInstance(states, labels);
+    double[][] distances = new DistanceComputer(LMC.probability, LMC.label).compute_distances();
+
+    //the distances read back by the file-based path are the fixed point of OptimalCouplingComputer
+    File file = File.createTempFile("sample", ".dis");
+    file.deleteOnExit();
+    PrintWriter writer = new PrintWriter(file);
+    for (int s = 0; s < states; s++) {
+      for (int t = s + 1; t < states; t++) {
+        writer.println(distances[s][t]);
+      }
+    }
+    writer.close();
+    double[][] read = Main.read_distances(file, states);
+
+    for (int s = 0; s < states; s++) {
+      for (int t = 0; t < states; t++) {
+        assertEquals(distances[s][t], read[s][t], 0.0);
+        if (LMC.label[s] == LMC.label[t] && s != t && is_live(LMC.probability[s]) == is_live(LMC.probability[t])) {
+          OptimalCouplingComputer solver = new OptimalCouplingComputer(s, t, LMC.probability, read);
+          assertEquals(solver.compute_distance(), read[s][t], 1e-8);
+        }
+      }
+    }
+  }
+
+  //Whether the state with the given transition probabilities has any transitions.  A state without transitions is at
+  //distance one from every state with transitions, which the solvers of a single pair do not account for.
+  private static boolean is_live(double[] probability) {
+    for (double p : probability) {
+      if (p > 0.0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  //A benchmark of the native solver against the file-based path, which only reads the distances computed by a separate tool.
+  //It asserts nothing and takes about a minute, so it only runs if the system property benchmark is true.
+  @Test
+  @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+  public void test_running_time() throws IOException {
+    final int NumIterations = 10;
+    final int NumStates = 100;
+    final int NumLabels = 5;
+
+    DescriptiveStatistics trial_native = new DescriptiveStatistics();
+    DescriptiveStatistics trial_file = new DescriptiveStatistics();
+
+    File file = File.createTempFile("sample", ".dis");
+    file.deleteOnExit();
+    for (int i = 0; i < NumIterations; i++) {
+      LabelledMarkovChain test_chain = Main.getRandomInstance(NumStates, NumLabels);
+
+      System.gc();
+      double start_time_native = System.nanoTime();
+      double[][] distances = new DistanceComputer(test_chain.probability, test_chain.label).compute_distances();
+      double end_time_native = System.nanoTime();
+
+      PrintWriter writer = new PrintWriter(file);
+      for (int s = 0; s < NumStates; s++) {
+        for (int t = s + 1; t < NumStates; t++) {
+          writer.println(distances[s][t]);
+        }
+      }
+      writer.close();
+
+      System.gc();
+      double start_time_file = System.nanoTime();
+      Main.read_distances(file, NumStates);
+      double end_time_file = System.nanoTime();
+
+      trial_native.addValue(end_time_native - start_time_native);
+      trial_file.addValue(end_time_file - start_time_file);
+    }
+    System.out.println("The native mean is: " + trial_native.getMean());
+    System.out.println("The native std is: " + trial_native.getStandardDeviation());
+    System.out.println("The file mean is: " + trial_file.getMean());
+    System.out.println("The file std is: " + trial_file.getStandardDeviation());
+  }
+}
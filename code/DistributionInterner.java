@@ -0,0 +1,49 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Interns the transition probability distributions of a labelled Markov chain by content.
+ */
+public class DistributionInterner {
+  /**
+   * Returns for each state the id of its transition probability distribution.  Two states
+   * have the same id if and only if they have the same transition probability distribution.
+   *
+   * @param probabilities transition probability matrix
+   * @return the id of the distribution of each state
+   */
+  public static int[] intern(double[][] probabilities) {
+    HashMap<Row, Integer> ids = new HashMap<>();
+    int[] id = new int[probabilities.length];
+    for (int s = 0; s < probabilities.length; s++) {
+      Row row = new Row(probabilities[s]);
+      Integer existing = ids.get(row);
+      if (existing == null) {
+        existing = ids.size();
+        ids.put(row, existing);
+      }
+      id[s] = existing;
+    }
+    return id;
+  }
+
+  private static class Row {
+    final double[] probabilities;
+    final int hash;
+
+    public Row(double[] probabilities) {
+      this.probabilities = probabilities;
+      this.hash = Arrays.hashCode(probabilities);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      return object instanceof Row && Arrays.equals(probabilities, ((Row) object).probabilities);
+    }
+  }
+}
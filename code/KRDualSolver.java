@@ -2,7 +2,11 @@ import org.apache.commons.math3.optim.PointValuePair;
 import org.apache.commons.math3.optim.linear.*;
 import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 
 public class KRDualSolver {
   double[][] distances;
@@ -12,6 +16,7 @@ public class KRDualSolver {
   int t;
 
   PointValuePair solution;
+  double[] dual;
 
   public KRDualSolver(LabelledMarkovChain LMC, int s, int t) {
     this.distances = LMC.distance;
@@ -20,6 +25,7 @@ public class KRDualSolver {
     this.s = s;
     this.t = t;
     this.solution = generate_solution();
+    this.dual = simplify_dual(this.solution.getPoint());
   }
 
   public KRDualSolver(double[][] distances, double[][] probabilities, int states, int s, int t) {
@@ -29,6 +35,7 @@ public class KRDualSolver {
     this.s = s;
     this.t = t;
     this.solution = generate_solution();
+    this.dual = simplify_dual(this.solution.getPoint());
   }
 
   private PointValuePair generate_solution() {
@@ -66,11 +73,160 @@ public class KRDualSolver {
       GoalType.MAXIMIZE);
   }
 
+  /**
+   * Returns an optimal dual with few distinct values.  The linear program is usually degenerate,
+   * and the vertex returned by the simplex solver is arbitrary among the optimal ones.  Each state
+   * in turn is moved to 0, to 1, or to one of the most frequent values of the dual, as long as the
+   * Lipschitz constraints remain satisfied and the objective does not decrease.  Every distinct value
+   * gives rise to more Plus/Minus subformulas, so this keeps the generated formulas small.
+   *
+   * @param vertex an optimal dual
+   * @return an optimal dual with few distinct values
+   */
+  private double[] simplify_dual(double[] vertex) {
+    final double delta = 1e-10;
+
+    double[] dual = new double[states];
+    for (int u = 0; u < states; u++) {
+      dual[u] = vertex[u];
+      if (Math.abs(dual[u]) < delta) {
+        dual[u] = 0.0;
+      } else if (Math.abs(dual[u] - 1.0) < delta) {
+        dual[u] = 1.0;
+      }
+    }
+
+    boolean changed = true;
+    for (int round = 0; changed && round < states; round++) {
+      changed = false;
+
+      //0 and 1 first, followed by the values of the dual by decreasing frequency
+      HashMap<Double, Integer> frequency = new HashMap<>();
+      for (int u = 0; u < states; u++) {
+        frequency.merge(dual[u], 1, Integer::sum);
+      }
+      ArrayList<Double> candidates = new ArrayList<>(frequency.keySet());
+      candidates.remove(0.0);
+      candidates.remove(1.0);
+      candidates.sort((x, y) -> frequency.get(y) - frequency.get(x));
+      candidates.add(0, 1.0);
+      candidates.add(0, 0.0);
+
+      for (int u = 0; u < states; u++) {
+        double coefficient = probabilities[t][u] - probabilities[s][u];
+        for (double candidate : candidates) {
+          if (candidate == dual[u]) {
+            break;
+          }
+          if (coefficient * (candidate - dual[u]) >= -delta && is_lipschitz(dual, u, candidate, delta)) {
+            dual[u] = candidate;
+            changed = true;
+            break;
+          }
+        }
+      }
+    }
+    return dual;
+  }
+
+  //Test whether the dual with the value of the given state replaced by the given value is non-expansive for that state.
+  private boolean is_lipschitz(double[] dual, int state, double value, double delta) {
+    for (int v = 0; v < states; v++) {
+      if (v != state && Math.abs(value - dual[v]) > distances[state][v] + delta) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the Kantorovich-Rubinstein duals for all pairs of states.  If f is an optimal dual
+   * for (u, v), then 1 - f is an optimal dual for (v, u), as long as the transition distributions
+   * of u and v have the same mass, so only one of the two is solved.
+   *
+   * @param distances     distance matrix
+   * @param probabilities transition probability matrix
+   * @param states        number of states
+   * @return the Kantorovich-Rubinstein duals indexed by pair of states
+   */
+  public static double[][][] generate_duals(double[][] distances, double[][] probabilities, int states) {
+    return generate_duals(distances, probabilities, states, DistributionInterner.intern(probabilities),
+      new Cache<List<Integer>, double[]>(states * states), 0, null);
+  }
+
+  /**
+   * Returns the Kantorovich-Rubinstein duals for all pairs of states.  The duals are memoized in
+   * the given cache, keyed by the ids of the transition distributions and the epoch of the distance
+   * matrix, so that every distinct pair of distributions is solved once per distance matrix.
+   * Since the keys do not identify the labelled Markov chain, a cache should only be shared by
+   * calls for the same transition probabilities and ids, and each epoch should identify a single
+   * distance matrix; otherwise, duals of another problem are returned.
+   * The pair with the smaller id first is solved and the reversed pair is derived.  If bounds are
+   * given, they are checked first and no linear program is solved for pairs whose bounds coincide.
+   *
+   * @param distances     distance matrix
+   * @param probabilities transition probability matrix
+   * @param states        number of states
+   * @param rows          the id of the transition distribution of each state
+   * @param cache         cache of duals
+   * @param epoch         the epoch of the distance matrix
+   * @param bounds        bounds of the distances, or null
+   * @return the Kantorovich-Rubinstein duals indexed by pair of states
+   */
+  public static double[][][] generate_duals(double[][] distances, double[][] probabilities, int states,
+                                            int[] rows, Cache<List<Integer>, double[]> cache, int epoch,
+                                            DistanceBounds bounds) {
+    boolean separates = bounds != null && bounds.separates_labels(distances);
+    double[][][] duals = new double[states][states][];
+    for (int u = 0; u < states; u++) {
+      for (int v = 0; v < states; v++) {
+        boolean reversible = is_reversible(probabilities[u], probabilities[v]);
+        if (bounds != null && reversible) {
+          duals[u][v] = bounds.dual(u, v, separates);
+          if (duals[u][v] != null) {
+            continue;
+          }
+        }
+        boolean reverse = rows[v] < rows[u] && reversible;
+        int first = reverse ? v : u;
+        int second = reverse ? u : v;
+        List<Integer> key = Arrays.asList(rows[first], rows[second], epoch);
+        double[] dual = cache.get(key);
+        if (dual == null) {
+          dual = (new KRDualSolver(distances, probabilities, states, first, second)).getKRdual();
+          cache.put(key, dual);
+        }
+        duals[u][v] = reverse ? reverse(dual) : dual;
+      }
+    }
+    return duals;
+  }
+
+  //Test whether the two distributions have the same mass, so that the objectives of (u, v) and (v, u) differ by a constant.
+  static boolean is_reversible(double[] first, double[] second) {
+    final double delta = 1e-10;
+
+    double sum = 0.0;
+    for (int u = 0; u < first.length; u++) {
+      sum += first[u] - second[u];
+    }
+    return Math.abs(sum) < delta;
+  }
+
+  //Derive the dual of the reversed pair.
+  static double[] reverse(double[] dual) {
+    double[] reversed = new double[dual.length];
+    for (int u = 0; u < dual.length; u++) {
+      reversed[u] = 1.0 - dual[u];
+    }
+    return reversed;
+  }
+
   public double getValue() {
     return solution.getValue();
   }
 
   public double[] getKRdual() {
-    return solution.getPoint();
+    return dual;
   }
 }
\ No newline at end of file
@@ -15,8 +15,11 @@
  * along with this program.  If not, see <https://www.gnu.org/licenses/>.
  */
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Set;
 
 /**
@@ -29,6 +32,10 @@ public class LabelledMarkovChain {
   public int[] label; // state labelling
   public double[][] probability; // transition probabilities
   public double[][] distance; // probabilistic bisimilarity distances
+  private Cache<List<Integer>, double[]> duals; // duals memoized by the last printEvaluations
+  private Cache<List<Integer>, Double> couplings; // distances memoized by the last printEvaluations
+  private DistanceBounds bounds; // bounds checked by the last printEvaluations
+  private long solved; // pairs scheduled by the worklist of the last printEvaluations
 
   /**
    * Initializes this labelled Markov chain with the given state
@@ -48,6 +55,110 @@ public class LabelledMarkovChain {
     this.distance = distance;
   }
 
+  /**
+   * Initializes this labelled Markov chain with the given state
+   * labeling and transition probabilities.  The probabilistic
+   * bisimilarity distances are computed.
+   *
+   * @param label       state labelling of this labelled Markov chain
+   * @param probability transition probabilities of this labelled
+   *                    Markov chain
+   */
+  public LabelledMarkovChain(int[] label, double[][] probability) {
+    this(label, probability, null);
+    this.compute_distances();
+  }
+
+  /**
+   * Computes the probabilistic bisimilarity distances of this labelled
+   * Markov chain by means of policy iteration and stores them in distance.
+   */
+  public void compute_distances() {
+    this.distance = new DistanceComputer(this.probability, this.label).compute_distances();
+  }
+
+  /**
+   * Computes the (discounted) probabilistic bisimilarity distances of
+   * this labelled Markov chain by means of parallel value iteration and
+   * stores them in distance.
+   *
+   * @param discount  the discount factor, in (0, 1]
+   * @param tolerance the iteration stops once the maximum change of a
+   *                  sweep is below this tolerance
+   * @return the computer, which reports the number of iterations and the residual
+   */
+  public ValueIterationComputer compute_distances(double discount, double tolerance) {
+    return this.compute_distances(discount, tolerance, false);
+  }
+
+  /**
+   * Computes the (discounted) probabilistic bisimilarity distances of
+   * this labelled Markov chain by means of parallel value iteration and
+   * stores them in distance.  In the asynchronous mode, the workers
+   * update a single distance matrix in place, without barriers.
+   *
+   * @param discount     the discount factor, in (0, 1]
+   * @param tolerance    the iteration stops once the maximum change of a
+   *                     sweep is below this tolerance
+   * @param asynchronous whether the workers update the distances asynchronously
+   * @return the computer, which reports the number of iterations and the residual
+   */
+  public ValueIterationComputer compute_distances(double discount, double tolerance, boolean asynchronous) {
+    ValueIterationComputer computer = new ValueIterationComputer(this.probability, this.label, discount, tolerance);
+    this.distance = asynchronous ? computer.compute_distances_asynchronously() : computer.compute_distances();
+    return computer;
+  }
+
+  /**
+   * Returns successively tighter intervals containing the probabilistic
+   * bisimilarity distance of the given states.
+   *
+   * @param s a state
+   * @param t a state
+   * @return successively tighter intervals containing the distance of s and t
+   */
+  public AnytimeDistance anytime_distance(int s, int t) {
+    return new AnytimeDistance(this.probability, this.label, s, t);
+  }
+
+  /**
+   * Returns a metric index over the states of this labelled Markov chain
+   * for nearest-state and range queries.  If the distances are known,
+   * they are used; otherwise only the distances needed by the index and
+   * its queries are computed.
+   *
+   * @return a metric index over the states of this labelled Markov chain
+   */
+  public VantagePointTree index() {
+    if (this.distance != null) {
+      return VantagePointTree.of(this.distance);
+    } else {
+      return VantagePointTree.lazy(this.probability, this.label);
+    }
+  }
+
+  /**
+   * Approximates the probabilistic bisimilarity distances of this
+   * labelled Markov chain by coarsening it at the given tolerances,
+   * from coarse to fine, and stores them in distance.
+   *
+   * @param tolerances the tolerances of the levels, from coarse to fine
+   * @param sweeps     the number of refinement sweeps at every level but
+   *                   the coarsest
+   * @return the finest level, which reports the error estimates
+   */
+  public MultilevelComputer.Level approximate_distances(double[] tolerances, int sweeps) {
+    MultilevelComputer.Level level = new MultilevelComputer(this.probability, this.label, tolerances, sweeps).compute();
+    int states = this.label.length;
+    this.distance = new double[states][states];
+    for (int s = 0; s < states; s++) {
+      for (int t = 0; t < states; t++) {
+        this.distance[s][t] = level.distance(s, t);
+      }
+    }
+    return level;
+  }
+
   /**
    * Returns the label of the given state of this labelled Markov chain.
    *
@@ -89,6 +200,43 @@ public class LabelledMarkovChain {
     return distinct;
   }
 
+  /**
+   * Returns the cache of Kantorovich-Rubinstein duals of the last call of printEvaluations.
+   *
+   * @return the cache of Kantorovich-Rubinstein duals, or null if printEvaluations has not been called
+   */
+  public Cache<List<Integer>, double[]> getDualCache() {
+    return this.duals;
+  }
+
+  /**
+   * Returns the cache of optimal coupling distances of the last call of printEvaluations.
+   *
+   * @return the cache of optimal coupling distances, or null if printEvaluations has not been called
+   */
+  public Cache<List<Integer>, Double> getCouplingCache() {
+    return this.couplings;
+  }
+
+  /**
+   * Returns the distance bounds of the last call of printEvaluations, which keep track of the
+   * fraction of pairs for which no linear program had to be solved.
+   *
+   * @return the distance bounds, or null if printEvaluations has not been called
+   */
+  public DistanceBounds getBounds() {
+    return this.bounds;
+  }
+
+  /**
+   * Returns the number of pairs whose distance was recomputed by the last call of printEvaluations.
+   *
+   * @return the number of pairs whose distance was recomputed
+   */
+  public long getSolved() {
+    return this.solved;
+  }
+
   /**
    * Returns a string representation of this labelled Markov chain.
    *
@@ -178,13 +326,27 @@ public class LabelledMarkovChain {
    * @return string containing stepwise separating formulas
    */
   public String printEvaluations(int n, int s, int t) {
+    return this.printEvaluations(n, s, t, 0.0);
+  }
+
+  /**
+   * Print iterations stepwise separating formulas.  The coupling of a pair is only recomputed
+   * if the distance of one of the pairs of its supports moved by more than the given threshold
+   * in the previous iteration.  With threshold zero, the distances are exact.
+   *
+   * @param n         number of iterations
+   * @param s         first state
+   * @param t         second state
+   * @param threshold the change below which a distance is considered unchanged
+   * @return string containing stepwise separating formulas
+   */
+  public String printEvaluations(int n, int s, int t, double threshold) {
     /*
     We need matrices of distances and KR duals for at least two levels.
      */
     double[][] probabilities = this.probability;
     int[] labels = this.label;
     int states = this.label.length;
-    double[][] distances = this.distance;
 
     double[][] diminus2 = new double[states][states];
     double[][] diminus1 = new double[states][states];
@@ -198,16 +360,32 @@ public class LabelledMarkovChain {
       }
     }
 
-    double[][][] KRminus2 = new double[states][states][states];
-    double[][][] KRminus1 = new double[states][states][states];
-    double[][][] KR = new double[states][states][states];
-    for (int u = 0; u < states; u++) {
-      for (int v = 0; v < states; v++) {
-        KRminus2[u][v] = (new KRDualSolver(diminus2, probabilities, states, u, v)).getKRdual();
-        KRminus1[u][v] = (new KRDualSolver(diminus1, probabilities, states, u, v)).getKRdual();
-        KR[u][v] = (new KRDualSolver(di, probabilities, states, u, v)).getKRdual();
-      }
-    }
+    /*
+    Solutions are memoized per pair of distinct transition distributions and per epoch
+    of the distance matrix.  A distance matrix keeps its epoch when it is shifted to the
+    previous level, so the duals of the previous levels are found in the cache.
+     */
+    int[] rows = DistributionInterner.intern(probabilities);
+    this.bounds = new DistanceBounds(probabilities, labels);
+    this.duals = new Cache<>(3 * states * states);
+    this.couplings = new Cache<>(states * states);
+    /*
+    Bisimilar pairs remain at zero and pairs at distance one are set to one as soon as all
+    pairs of their supports are, without computing a coupling.  Pairs in acyclic parts of the
+    graph of pairs stop changing after a number of levels, so their couplings need not be
+    recomputed from then on.
+     */
+    ZeroOneDistances extremes = new ZeroOneDistances(probabilities, labels, 8);
+    int[][] stable = PairGraph.stable_levels(probabilities, labels, extremes.get_zero(), 1e-10);
+    int[][] predecessors = PairGraph.predecessors(PairGraph.supports(probabilities, 1e-10));
+    this.solved = 0;
+    int epochminus2 = 0;
+    int epochminus1 = 0; // diminus2 and diminus1 are both zero
+    int epoch = 1;
+
+    double[][][] KRminus2 = KRDualSolver.generate_duals(diminus2, probabilities, states, rows, this.duals, epochminus2, this.bounds);
+    double[][][] KRminus1 = KRDualSolver.generate_duals(diminus1, probabilities, states, rows, this.duals, epochminus1, this.bounds);
+    double[][][] KR = KRDualSolver.generate_duals(di, probabilities, states, rows, this.duals, epoch, this.bounds);
 
     StringBuffer output = new StringBuffer();
     for (int i = 0; i < n; i++) {
@@ -226,35 +404,64 @@ public class LabelledMarkovChain {
         diminus2[u] = Arrays.copyOf(diminus1[u], states);
         diminus1[u] = Arrays.copyOf(di[u], states);
       }
+      epochminus2 = epochminus1;
+      epochminus1 = epoch;
+      epoch++;
 
-      for (int u = 0; u < states; u++) {
-        for (int v = 0; v < states; v++) {
-          if (distances[u][v] != 0 && labels[u] == labels[v]) {
-            OptimalCouplingComputer o = new OptimalCouplingComputer(u, v, probabilities, diminus1);
-            di[u][v] = o.compute_distance();
+      /*
+      Only the pairs that depend on a pair whose distance moved are scheduled, found by means
+      of the reverse dependency index, and those with the largest change are solved first.
+       */
+      double[][] change = new double[states][states];
+      ArrayList<int[]> scheduled = new ArrayList<>();
+      for (int w = 0; w < states; w++) {
+        for (int x = 0; x < states; x++) {
+          double moved = Math.abs(diminus1[w][x] - diminus2[w][x]);
+          if (moved > threshold) {
+            for (int u : predecessors[w]) {
+              for (int v : predecessors[x]) {
+                if (labels[u] == labels[v] && !extremes.is_zero(u, v) && stable[u][v] > i + 1) {
+                  if (change[u][v] == 0.0) {
+                    scheduled.add(new int[]{u, v});
+                  }
+                  change[u][v] = Math.max(change[u][v], moved);
+                }
+              }
+            }
           }
         }
       }
-      for (int u = 0; u < states; u++) {
-        for (int v = 0; v < states; v++) {
-          KRDualSolver k = new KRDualSolver(diminus2, probabilities, states, u, v);
-          KRminus2[u][v] = k.getKRdual();
-        }
-      }
-
-      for (int u = 0; u < states; u++) {
-        for (int v = 0; v < states; v++) {
-          KRDualSolver k = new KRDualSolver(diminus1, probabilities, states, s, t);
-          KRminus1[u][v] = k.getKRdual();
-        }
-      }
+      PriorityQueue<int[]> worklist = new PriorityQueue<>(Math.max(1, scheduled.size()),
+        (x, y) -> Double.compare(change[y[0]][y[1]], change[x[0]][x[1]]));
+      worklist.addAll(scheduled);
 
-      for (int u = 0; u < states; u++) {
-        for (int v = 0; v < states; v++) {
-          KRDualSolver k = new KRDualSolver(di, probabilities, states, s, t);
-          KR[u][v] = k.getKRdual();
+      boolean separates = this.bounds.separates_labels(diminus1);
+      while (!worklist.isEmpty()) {
+        int[] pair = worklist.remove();
+        int u = pair[0];
+        int v = pair[1];
+        if (extremes.is_one(u, v, diminus1)) {
+          //a pair at distance one reaches one as soon as all pairs of its supports have
+          di[u][v] = 1.0;
+        } else {
+          //the distance is symmetric, so the key is ordered by id
+          List<Integer> key = Arrays.asList(Math.min(rows[u], rows[v]), Math.max(rows[u], rows[v]), epochminus1);
+          Double distance = this.bounds.distance(u, v, separates);
+          if (distance == null) {
+            distance = this.couplings.get(key);
+          }
+          if (distance == null) {
+            OptimalCouplingComputer o = new OptimalCouplingComputer(u, v, probabilities, diminus1);
+            distance = o.compute_distance();
+            this.couplings.put(key, distance);
+          }
+          di[u][v] = distance;
         }
+        this.solved++;
       }
+      KRminus2 = KRDualSolver.generate_duals(diminus2, probabilities, states, rows, this.duals, epochminus2, this.bounds);
+      KRminus1 = KRDualSolver.generate_duals(diminus1, probabilities, states, rows, this.duals, epochminus1, this.bounds);
+      KR = KRDualSolver.generate_duals(di, probabilities, states, rows, this.duals, epoch, this.bounds);
 
     }
     return output.toString();
@@ -81,9 +81,25 @@ public class Main {
     input.close();
 
         /*
-        Reading the transitions
+        Reading the distances, or computing them if they are not available
          */
-    input = new Scanner(new File("sample.dis"));
+    File distances = new File("sample.dis");
+    if (!distances.exists()) {
+      return new LabelledMarkovChain(label, probability);
+    }
+    return new LabelledMarkovChain(label, probability, read_distances(distances, states));
+  }
+
+  /**
+   * Reads the distances d(s, t) with s < t from the given file.
+   *
+   * @param file   file containing the distances
+   * @param states number of states
+   * @return the distance matrix
+   * @throws FileNotFoundException if the file cannot be read
+   */
+  public static double[][] read_distances(File file, int states) throws FileNotFoundException {
+    Scanner input = new Scanner(file);
     double[][] distance = new double[states][states];
     for (int s = 0; s < states; s++) {
       for (int t = 0; t < states; t++) {
@@ -97,12 +113,24 @@ public class Main {
       }
     }
     input.close();
-
-    return new LabelledMarkovChain(label, probability, distance);
+    return distance;
   }
 
+  /**
+   * Prints the evaluations of the sample labelled Markov chain.
+   *
+   * @param args optional, -statistics to also print the statistics of the caches, bounds and recomputed pairs
+   * @throws FileNotFoundException if the sample files cannot be read
+   */
   public static void main(String[] args) throws FileNotFoundException {
+    boolean statistics = args.length > 0 && args[0].equals("-statistics");
     LabelledMarkovChain chain = read_input();
     System.out.println(chain.printEvaluations(4, 0, 1));
+    if (statistics) {
+      System.out.println("Duals: " + chain.getDualCache());
+      System.out.println("Couplings: " + chain.getCouplingCache());
+      System.out.println("Bounds: " + chain.getBounds());
+      System.out.println("Recomputed pairs: " + chain.getSolved());
+    }
   }
 }
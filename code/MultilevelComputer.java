@@ -0,0 +1,293 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Approximates the probabilistic bisimilarity distances of a labelled Markov chain by a multilevel
+ * scheme.  For each of the given tolerances, from coarse to fine, the chain is coarsened by merging
+ * states with the same label whose transition probabilities into the blocks agree up to the
+ * tolerance; the transition probabilities of a block are the averages of those of its states.
+ * The distances of the coarsest chain are computed exactly by DistanceComputer.  The distances of
+ * every finer chain start from those of the previous level, prolongated through the states the
+ * blocks have in common, and are refined by a number of in-place sweeps of optimal couplings.
+ *
+ * <p>
+ * Each level comes with two error estimates: the coarsening error, the largest total variation
+ * distance between the transition probabilities of a state and those of its block, and the
+ * residual, the largest change of the last refinement sweep.
+ *
+ * <p>
+ * Coarsening does not compare pairs of states.  Each round hashes, for every state, its block
+ * together with its transition probabilities into the blocks, rounded to the grid, so that a round
+ * takes time linear in the number of transitions, apart from sorting the blocks each state moves
+ * into.  The rounds stop as soon as the partition is stable, after at most as many rounds as there
+ * are states.  The refinement sweeps, in contrast, consider every pair of blocks with the same label.
+ */
+public class MultilevelComputer {
+  final double delta = 1e-10; //a precision factor to test approximate equality
+  final int precision = 8; //the precision of the transition probabilities used to decide bisimilarity
+
+  private final double[][] probabilities;
+  private final int[] labels;
+  private final int[][] support; //the states reachable from each state in one transition
+  private final double[] tolerances;
+  private final int sweeps;
+  private final ArrayList<Level> levels;
+
+  /**
+   * A coarsened chain and its distances.
+   */
+  public static class Level {
+    public final double tolerance;
+    public final int[] block; //the block of each state of the original chain
+    public final double[][] probabilities; //the transition probabilities of the blocks
+    public final int[] labels; //the labels of the blocks
+    public final double[][] distances; //the distances of the blocks
+    public double coarsening; //the largest total variation distance of a state to its block
+    public double residual; //the largest change of the last refinement sweep
+
+    Level(double tolerance, int[] block, double[][] probabilities, int[] labels) {
+      this.tolerance = tolerance;
+      this.block = block;
+      this.probabilities = probabilities;
+      this.labels = labels;
+      this.distances = new double[labels.length][labels.length];
+    }
+
+    public int size() {
+      return labels.length;
+    }
+
+    //The approximate distance of the given states of the original chain.
+    public double distance(int s, int t) {
+      return distances[block[s]][block[t]];
+    }
+  }
+
+  /**
+   * Initializes this computer.
+   *
+   * @param probabilities transition probability matrix
+   * @param labels        state labels
+   * @param tolerances    the tolerances of the levels, from coarse to fine; a tolerance of zero
+   *                      only merges states with the same transition probabilities into the blocks
+   * @param sweeps        the number of refinement sweeps at every level but the coarsest
+   */
+  public MultilevelComputer(double[][] probabilities, int[] labels, double[] tolerances, int sweeps) {
+    if (tolerances.length == 0) {
+      throw new IllegalArgumentException("at least one level is needed");
+    }
+    for (int l = 1; l < tolerances.length; l++) {
+      if (tolerances[l] > tolerances[l - 1]) {
+        throw new IllegalArgumentException("the tolerances should be ordered from coarse to fine");
+      }
+    }
+    this.probabilities = probabilities;
+    this.labels = labels;
+    this.support = PairGraph.supports(probabilities, 0.0);
+    this.tolerances = tolerances;
+    this.sweeps = sweeps;
+    this.levels = new ArrayList<>();
+  }
+
+  /**
+   * Returns the finest level, whose distances approximate those of the chain.
+   *
+   * @return the finest level
+   */
+  public Level compute() {
+    levels.clear();
+    for (double tolerance : tolerances) {
+      Level level = coarsen(tolerance);
+      if (levels.isEmpty()) {
+        double[][] distances = new DistanceComputer(level.probabilities, level.labels).compute_distances();
+        for (int b = 0; b < level.size(); b++) {
+          level.distances[b] = distances[b];
+        }
+      } else {
+        prolongate(levels.get(levels.size() - 1), level);
+        refine(level);
+      }
+      levels.add(level);
+    }
+    return levels.get(levels.size() - 1);
+  }
+
+  //The levels of the last computation, from coarse to fine.
+  public List<Level> get_levels() {
+    return levels;
+  }
+
+  /**
+   * Partitions the states by label and refines the partition until the transition probabilities
+   * into the blocks of all states of a block agree up to the given tolerance, rounded to a grid.
+   */
+  private Level coarsen(double tolerance) {
+    int states = labels.length;
+    double resolution = Math.max(tolerance, Math.pow(10.0, -precision));
+    int[] block = new int[states];
+    int blocks = number(labels, block);
+    double[] row = new double[states]; //the transition probabilities of a state into the blocks, zero between states
+    for (int round = 0; round < states; round++) {
+      long[][] signature = new long[states][];
+      for (int s = 0; s < states; s++) {
+        //only the blocks whose rounded probability is nonzero are part of the signature
+        int[] reached = lump(s, block, row);
+        int nonzero = 0;
+        for (int b : reached) {
+          if (Math.round(row[b] / resolution) != 0) {
+            nonzero++;
+          }
+        }
+        signature[s] = new long[2 * nonzero + 1];
+        signature[s][0] = block[s];
+        int k = 1;
+        for (int b : reached) {
+          long rounded = Math.round(row[b] / resolution);
+          if (rounded != 0) {
+            signature[s][k++] = b;
+            signature[s][k++] = rounded;
+          }
+          row[b] = 0.0;
+        }
+      }
+      int[] refined = new int[states];
+      int number = number(signature, refined);
+      block = refined;
+      if (number == blocks) {
+        break;
+      }
+      blocks = number;
+    }
+
+    //the transition probabilities of a block are the averages of those of its states
+    int[] size = new int[blocks];
+    int[] label = new int[blocks];
+    double[][] lumped = new double[blocks][blocks];
+    for (int s = 0; s < states; s++) {
+      size[block[s]]++;
+      label[block[s]] = labels[s];
+      for (int u : support[s]) {
+        lumped[block[s]][block[u]] += probabilities[s][u];
+      }
+    }
+    for (int b = 0; b < blocks; b++) {
+      for (int c = 0; c < blocks; c++) {
+        lumped[b][c] /= size[b];
+      }
+    }
+
+    Level level = new Level(tolerance, block, lumped, label);
+    for (int s = 0; s < states; s++) {
+      double variation = 0.0;
+      for (int c : lump(s, block, row)) {
+        variation += Math.max(0.0, row[c] - lumped[block[s]][c]);
+        row[c] = 0.0;
+      }
+      level.coarsening = Math.max(level.coarsening, variation);
+    }
+    return level;
+  }
+
+  //Adds the transition probabilities of the given state into the blocks to row and returns the blocks it moves into, in increasing order.
+  private int[] lump(int s, int[] block, double[] row) {
+    int[] reached = new int[support[s].length];
+    int size = 0;
+    for (int u : support[s]) {
+      if (row[block[u]] == 0.0) {
+        reached[size++] = block[u];
+      }
+      row[block[u]] += probabilities[s][u];
+    }
+    reached = Arrays.copyOf(reached, size);
+    Arrays.sort(reached);
+    return reached;
+  }
+
+  //Numbers the distinct keys consecutively, in order of first occurrence, and returns the number of distinct keys.
+  private static int number(int[] keys, int[] number) {
+    HashMap<Integer, Integer> numbers = new HashMap<>();
+    for (int s = 0; s < keys.length; s++) {
+      Integer n = numbers.get(keys[s]);
+      if (n == null) {
+        n = numbers.size();
+        numbers.put(keys[s], n);
+      }
+      number[s] = n;
+    }
+    return numbers.size();
+  }
+
+  private static int number(long[][] keys, int[] number) {
+    HashMap<List<Long>, Integer> numbers = new HashMap<>();
+    for (int s = 0; s < keys.length; s++) {
+      List<Long> key = new ArrayList<>();
+      for (long k : keys[s]) {
+        key.add(k);
+      }
+      Integer n = numbers.get(key);
+      if (n == null) {
+        n = numbers.size();
+        numbers.put(key, n);
+      }
+      number[s] = n;
+    }
+    return numbers.size();
+  }
+
+  //Initializes the distances of the blocks of the fine level by those of the blocks of their first states at the coarse level.
+  private void prolongate(Level coarse, Level fine) {
+    int[] first = new int[fine.size()];
+    Arrays.fill(first, -1);
+    for (int s = 0; s < fine.block.length; s++) {
+      if (first[fine.block[s]] == -1) {
+        first[fine.block[s]] = s;
+      }
+    }
+    for (int b = 0; b < fine.size(); b++) {
+      for (int c = 0; c < fine.size(); c++) {
+        fine.distances[b][c] = b == c ? 0.0 : coarse.distance(first[b], first[c]);
+      }
+    }
+  }
+
+  /**
+   * Refines the distances of the given level by sweeps of optimal couplings, updated in place.
+   * The pairs at distance zero and one are fixed, so that the distances converge to the unique
+   * fixed point from any starting point.
+   */
+  private void refine(Level level) {
+    int size = level.size();
+    ZeroOneDistances extremes = new ZeroOneDistances(level.probabilities, level.labels, precision);
+    for (int b = 0; b < size; b++) {
+      for (int c = 0; c < size; c++) {
+        if (extremes.is_zero(b, c)) {
+          level.distances[b][c] = 0.0;
+        } else if (level.labels[b] != level.labels[c] || extremes.is_one(b, c)) {
+          level.distances[b][c] = 1.0;
+        }
+      }
+    }
+
+    //without refinement sweeps, a single sweep without updates estimates the residual
+    for (int sweep = 0; sweep < Math.max(1, sweeps); sweep++) {
+      level.residual = 0.0;
+      for (int b = 0; b < size; b++) {
+        for (int c = b + 1; c < size; c++) {
+          if (level.labels[b] == level.labels[c] && !extremes.is_zero(b, c) && !extremes.is_one(b, c)) {
+            double distance = new OptimalCouplingComputer(b, c, level.probabilities, level.distances).compute_distance();
+            level.residual = Math.max(level.residual, Math.abs(distance - level.distances[b][c]));
+            if (sweeps > 0) {
+              level.distances[b][c] = distance;
+              level.distances[c][b] = distance;
+            }
+          }
+        }
+      }
+      if (level.residual < delta) {
+        break;
+      }
+    }
+  }
+}
@@ -0,0 +1,31 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MultilevelComputerTest {
+  @Test
+  public void test_refinement() {
+    int states = 30;
+    int labels = 2;
+
+    LabelledMarkovChain LMC = Main.getRandomInstance(states, labels);
+    double[][] distances = new DistanceComputer(LMC.probability, LMC.label).compute_distances();
+
+    //the finest level only merges states with the same transition probabilities into the blocks
+    MultilevelComputer computer = new MultilevelComputer(LMC.probability, LMC.label, new double[]{0.5, 0.1, 0.0}, 1000);
+    MultilevelComputer.Level finest = computer.compute();
+    List<MultilevelComputer.Level> levels = computer.get_levels();
+    assertEquals(3, levels.size());
+    assertTrue(levels.get(0).size() <= levels.get(1).size() && levels.get(1).size() <= finest.size());
+    assertTrue(finest.residual < 1e-9);
+
+    for (int s = 0; s < states; s++) {
+      for (int t = 0; t < states; t++) {
+        assertEquals(distances[s][t], finest.distance(s, t), 1e-6);
+      }
+    }
+  }
+}
@@ -1,4 +1,3 @@
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 
@@ -7,7 +6,7 @@ public class OptimalCouplingComputer {
   final int n;
   final int m;
   final double[][] initial_flow;
-  private double[][] distances;
+  private DistanceFunction distances;
   final double[][] costs;
 
   final double delta = 1e-10; //a precision factor to test approximate equality
@@ -15,11 +14,14 @@ public class OptimalCouplingComputer {
   double[][] flow;
   double[][] capacity;
 
+  //The distance matrix is not copied, since a computer is created for every pair of states; it should not change before compute_distance returns.
   public OptimalCouplingComputer(int s, int t, double[][] probabilities, double[][] distances) {
-    this.distances = new double[distances[0].length][];
-    for (int u = 0; u < distances[0].length; u++) {
-      this.distances[u] = Arrays.copyOf(distances[u], distances[0].length);
-    }
+    this(s, t, probabilities, (u, v) -> distances[u][v]);
+  }
+
+  //Only the distances of the pairs in the product of the supports of s and t are looked up.
+  public OptimalCouplingComputer(int s, int t, double[][] probabilities, DistanceFunction distances) {
+    this.distances = distances;
 
     BipartitieGraph graph = new BipartitieGraph(new LinkedList<>(), new LinkedList<>());
 
@@ -101,8 +103,8 @@ public class OptimalCouplingComputer {
         assert this.graph != null;
         int k = this.graph.left.get(i).state;
         int l = this.graph.right.get(j - n).state;
-        costs[i][j] = distances[k][l];
-        costs[j][i] = -distances[k][l];
+        costs[i][j] = distances.get(k, l);
+        costs[j][i] = -costs[i][j];
       }
     }
     return costs;
@@ -147,7 +149,7 @@ public class OptimalCouplingComputer {
 
       if (tail < n) {
         for (int head = n; head < n + m; head++) {
-          if (d[head] > d[tail] + costs[tail][head] && Math.abs(this.capacity[tail][head]) > delta) {
+          if (d[head] > d[tail] + costs[tail][head] + delta && Math.abs(this.capacity[tail][head]) > delta) {
             d[head] = d[tail] + costs[tail][head];
             q.add(head);
             predecessor_tree.put(head, tail);
@@ -155,7 +157,7 @@ public class OptimalCouplingComputer {
         }
       } else {
         for (int head = 0; head < n; head++) {
-          if (d[head] > d[tail] + costs[tail][head] && Math.abs(this.capacity[tail][head]) > delta) {
+          if (d[head] > d[tail] + costs[tail][head] + delta && Math.abs(this.capacity[tail][head]) > delta) {
             d[head] = d[tail] + costs[tail][head];
             q.add(head);
             predecessor_tree.put(head, tail);
@@ -175,20 +177,28 @@ public class OptimalCouplingComputer {
         //System.out.print("Negative cycle found: " + count + ".\n");
         //count++;
         double delta = Double.MAX_VALUE;
+        double cost = 0.0;
 
         int j = cycle.head;
         int i = cycle.predecessor_tree.get(j);
         do {
           delta = Math.min(delta, capacity[i][j]);
+          cost += costs[i][j];
           j = i;
           i = cycle.predecessor_tree.get(j);
         } while (j != cycle.head);
 
+        //A cycle whose cost is negative only due to rounding errors does not improve the flow.
+        if (cost > -this.delta) {
+          break;
+        }
+
         //Note that upon exit from this loop j and i have been reset.
         //Augment the flow by delta and remove delta from capacities along the cycle.
         do {
           this.flow[i][j] += delta;
           this.capacity[i][j] -= delta;
+          this.capacity[j][i] += delta; //the residual capacity of the reverse edge
 
           j = i;
           i = cycle.predecessor_tree.get(j);
@@ -216,12 +226,67 @@ public class OptimalCouplingComputer {
     double distance = 0;
     for (int i = 0; i < n; i++) {
       for (int j = 0; j < m; j++) {
-        distance += flow[i][n + j] * distances[this.graph.left.get(i).state][this.graph.right.get(j).state];
+        distance += flow[i][n + j] * costs[i][n + j];
       }
     }
     return distance;
   }
 
+  /**
+   * Returns the current coupling: the initial feasible one, or the optimal one once compute_distance
+   * has been called.  Only the entries with a positive probability are included.
+   *
+   * @return the current coupling
+   */
+  public Coupling get_coupling() {
+    int size = 0;
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < m; j++) {
+        if (flow[i][n + j] > delta) {
+          size++;
+        }
+      }
+    }
+    Coupling coupling = new Coupling(size);
+    int k = 0;
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < m; j++) {
+        if (flow[i][n + j] > delta) {
+          coupling.first[k] = this.graph.left.get(i).state;
+          coupling.second[k] = this.graph.right.get(j).state;
+          coupling.probability[k] = flow[i][n + j];
+          k++;
+        }
+      }
+    }
+    return coupling;
+  }
+
+  /**
+   * A coupling of two transition distributions: entry k moves from first[k] and second[k]
+   * with the given probability.
+   */
+  public static class Coupling {
+    public final int size;
+    public final int[] first;
+    public final int[] second;
+    public final double[] probability;
+
+    public Coupling(int size) {
+      this.size = size;
+      this.first = new int[size];
+      this.second = new int[size];
+      this.probability = new double[size];
+    }
+  }
+
+  /**
+   * The distances of pairs of states.
+   */
+  public interface DistanceFunction {
+    double get(int u, int v);
+  }
+
   private static class Pair {
     public int state;
     public double probability;
@@ -30,6 +30,32 @@ class OptimalCouplingSolverTest {
     assertEquals(distance_lp, distance_mcf, 1e-10);
   }
 
+  @Test
+  public void test_reverse_capacity() {
+    //the optimal coupling moves probability back along an edge that a previous cycle augmented
+    double[][] probabilities = {{1 / 3.0, 1 / 3.0, 1 / 3.0}, {0.2, 0.4, 0.4}, {0.0, 0.0, 1.0}};
+    double[][] distances = {{1.0, 0.0, 1.0}, {0.5, 0.0, 0.5}, {0.0, 0.0, 1.0}};
+
+    OptimalCouplingComputer solver_mcf = new OptimalCouplingComputer(0, 1, probabilities, distances);
+    LinearProgrammingSolver solver_lp = new LinearProgrammingSolver(0, 1, probabilities, distances);
+
+    assertEquals(7 / 30.0, solver_lp.compute_distance(), 1e-10);
+    assertEquals(7 / 30.0, solver_mcf.compute_distance(), 1e-10);
+  }
+
+  @Test
+  public void test_rounding_cycle() {
+    //the edges of a pair and its reverse edges form cycles whose cost is only negative due to rounding errors
+    double[][] probabilities = {{1 / 3.0, 2 / 3.0}, {0.5, 0.5}};
+    double[][] distances = {{0.4, 0.3}, {0.0, 0.3}};
+
+    OptimalCouplingComputer solver_mcf = new OptimalCouplingComputer(0, 1, probabilities, distances);
+    LinearProgrammingSolver solver_lp = new LinearProgrammingSolver(0, 1, probabilities, distances);
+
+    assertEquals(0.15, solver_lp.compute_distance(), 1e-10);
+    assertEquals(0.15, solver_mcf.compute_distance(), 1e-10);
+  }
+
   @Test
   public void test_solver_running_time() {
     final int NumIterations = 200;
@@ -0,0 +1,250 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * The graph of unordered pairs of states of a labelled Markov chain.  There is an edge from the
+ * pair {s, t} to the pair {u, v} if s can transition to u and t can transition to v, that is, if
+ * the distance of {u, v} is needed to compute an optimal coupling of {s, t}.  Only the given pairs
+ * are nodes of the graph; the other pairs are assumed to have a known distance.
+ *
+ * <p>
+ * The strongly connected components are found by Tarjan's algorithm, which produces them in
+ * reverse topological order: every component only reaches itself and the components before it.
+ *
+ * <p>
+ * Robert Tarjan.  Depth-first search and linear graph algorithms.  <i>SIAM Journal on
+ * Computing</i>, 1(2): 146-160, June 1972.
+ */
+public class PairGraph {
+  private final int states;
+  private final int[][] support;
+  private final ArrayList<int[]> pairs;
+  private final HashMap<Long, Integer> index;
+
+  /**
+   * Initializes this graph.
+   *
+   * @param support the states reachable from each state in one transition
+   * @param pairs   the pairs (u, v), with u &lt; v, that are the nodes of this graph
+   */
+  public PairGraph(int[][] support, ArrayList<int[]> pairs) {
+    this.states = support.length;
+    this.support = support;
+    this.pairs = pairs;
+    this.index = new HashMap<>();
+    for (int p = 0; p < pairs.size(); p++) {
+      index.put(key(pairs.get(p)[0], pairs.get(p)[1]), p);
+    }
+  }
+
+  //Returns for each state the states reachable in one transition.
+  public static int[][] supports(double[][] probabilities, double delta) {
+    int states = probabilities.length;
+    int[][] support = new int[states][];
+    for (int s = 0; s < states; s++) {
+      int size = 0;
+      for (int u = 0; u < states; u++) {
+        if (probabilities[s][u] > delta) {
+          size++;
+        }
+      }
+      support[s] = new int[size];
+      size = 0;
+      for (int u = 0; u < states; u++) {
+        if (probabilities[s][u] > delta) {
+          support[s][size++] = u;
+        }
+      }
+    }
+    return support;
+  }
+
+  //Returns for each state the states that reach it in one transition; the pairs that depend on {u, v} are those of predecessors[u] x predecessors[v].
+  public static int[][] predecessors(int[][] support) {
+    int states = support.length;
+    int[] size = new int[states];
+    for (int s = 0; s < states; s++) {
+      for (int u : support[s]) {
+        size[u]++;
+      }
+    }
+    int[][] predecessors = new int[states][];
+    for (int u = 0; u < states; u++) {
+      predecessors[u] = new int[size[u]];
+      size[u] = 0;
+    }
+    for (int s = 0; s < states; s++) {
+      for (int u : support[s]) {
+        predecessors[u][size[u]++] = s;
+      }
+    }
+    return predecessors;
+  }
+
+  //The key of the unordered pair {u, v}.
+  private long key(int u, int v) {
+    return (long) Math.min(u, v) * states + Math.max(u, v);
+  }
+
+  public int size() {
+    return pairs.size();
+  }
+
+  public int[] get_pair(int p) {
+    return pairs.get(p);
+  }
+
+  //Returns the node of the pair {u, v}, or -1 if it is not a node of this graph.
+  public int index_of(int u, int v) {
+    Integer p = index.get(key(u, v));
+    return p == null ? -1 : p;
+  }
+
+  //Returns the nodes of the pairs reachable from the given node in one step, possibly with repetitions.
+  public int[] successors(int p) {
+    int[] pair = pairs.get(p);
+    int[] successors = new int[support[pair[0]].length * support[pair[1]].length];
+    int size = 0;
+    for (int u : support[pair[0]]) {
+      for (int v : support[pair[1]]) {
+        int q = index_of(u, v);
+        if (q != -1) {
+          successors[size++] = q;
+        }
+      }
+    }
+    return Arrays.copyOf(successors, size);
+  }
+
+  /**
+   * Returns the strongly connected components of this graph in reverse topological order.  The
+   * search is iterative, since the number of pairs is quadratic in the number of states.
+   *
+   * @return the strongly connected components of this graph in reverse topological order
+   */
+  public ArrayList<int[]> components() {
+    int size = pairs.size();
+    int[][] successors = new int[size][];
+    int[] number = new int[size]; //the order in which the nodes are visited, starting at 1
+    int[] low = new int[size];
+    boolean[] on_stack = new boolean[size];
+    int[] stack = new int[size];
+    int top = 0;
+    int[] call = new int[size]; //the nodes of the depth-first search path
+    int[] next = new int[size]; //the next successor to be considered for each node of the path
+    int count = 0;
+
+    ArrayList<int[]> components = new ArrayList<>();
+    for (int root = 0; root < size; root++) {
+      if (number[root] != 0) {
+        continue;
+      }
+      int depth = 0;
+      call[depth] = root;
+      next[depth] = 0;
+      number[root] = low[root] = ++count;
+      successors[root] = successors(root);
+      stack[top++] = root;
+      on_stack[root] = true;
+      while (depth >= 0) {
+        int p = call[depth];
+        if (next[depth] < successors[p].length) {
+          int q = successors[p][next[depth]++];
+          if (number[q] == 0) {
+            number[q] = low[q] = ++count;
+            successors[q] = successors(q);
+            stack[top++] = q;
+            on_stack[q] = true;
+            depth++;
+            call[depth] = q;
+            next[depth] = 0;
+          } else if (on_stack[q]) {
+            low[p] = Math.min(low[p], number[q]);
+          }
+        } else {
+          if (low[p] == number[p]) {
+            int bottom = top;
+            do {
+              bottom--;
+            } while (stack[bottom] != p);
+            int[] component = Arrays.copyOfRange(stack, bottom, top);
+            for (int q : component) {
+              on_stack[q] = false;
+            }
+            top = bottom;
+            components.add(component);
+          }
+          depth--;
+          if (depth >= 0) {
+            low[call[depth]] = Math.min(low[call[depth]], low[p]);
+          }
+        }
+      }
+    }
+    return components;
+  }
+
+  //Test whether the given component consists of a single pair without an edge to itself.
+  public boolean is_trivial(int[] component) {
+    if (component.length > 1) {
+      return false;
+    }
+    for (int q : successors(component[0])) {
+      if (q == component[0]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns for every pair of states the level from which on its distance iterates no longer
+   * change, or Integer.MAX_VALUE if they may keep changing.  The iterates start from zero
+   * everywhere, pairs with different labels are at distance one from level 1 on, and bisimilar
+   * pairs remain at distance zero.  A pair in a trivial component is stable one level after all its
+   * successors are; a pair in a nontrivial component, or reaching one, is never known to be stable.
+   *
+   * @param probabilities transition probability matrix
+   * @param labels        state labels
+   * @param bisimilar     probabilistic bisimilarity
+   * @param delta         the smallest positive transition probability
+   * @return the levels from which on the distance iterates are stable
+   */
+  public static int[][] stable_levels(double[][] probabilities, int[] labels, boolean[][] bisimilar, double delta) {
+    int states = labels.length;
+    int[][] level = new int[states][states];
+    ArrayList<int[]> pairs = new ArrayList<>();
+    for (int u = 0; u < states; u++) {
+      for (int v = 0; v < states; v++) {
+        if (labels[u] != labels[v]) {
+          level[u][v] = 1;
+        } else if (u < v && !bisimilar[u][v]) {
+          pairs.add(new int[]{u, v});
+        }
+      }
+    }
+
+    int[][] support = supports(probabilities, delta);
+    PairGraph graph = new PairGraph(support, pairs);
+    for (int[] component : graph.components()) {
+      int[] pair = graph.get_pair(component[0]);
+      int stable = Integer.MAX_VALUE;
+      if (graph.is_trivial(component)) {
+        stable = 0;
+        for (int u : support[pair[0]]) {
+          for (int v : support[pair[1]]) {
+            stable = Math.max(stable, level[u][v]);
+          }
+        }
+        stable = stable == Integer.MAX_VALUE ? stable : stable + 1;
+      }
+      for (int p : component) {
+        pair = graph.get_pair(p);
+        level[pair[0]][pair[1]] = stable;
+        level[pair[1]][pair[0]] = stable;
+      }
+    }
+    return level;
+  }
+}
@@ -298,7 +298,7 @@ public class ProbabilisticBisimilarity {
 		@Override
 		public boolean equals(Object object) {
 			if (this != null && this.getClass() == object.getClass()) {
-				Block other = (Block) object;
+				State other = (State) object;
 				return this.id == other.id;
 			} else {
 				return false;
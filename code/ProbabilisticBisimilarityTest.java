@@ -0,0 +1,22 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProbabilisticBisimilarityTest {
+  @Test
+  public void test_decide() {
+    //states 0 and 1 both move to state 3, state 2 stays in itself; splitting the block of 0, 1 and 2 removes states from it
+    double[][] probabilities = {{0.0, 0.0, 0.0, 1.0}, {0.0, 0.0, 0.0, 1.0}, {0.0, 0.0, 1.0, 0.0}, {0.0, 0.0, 0.0, 1.0}};
+    int[] labels = {0, 0, 0, 1};
+
+    Set<Set<Integer>> expected = new HashSet<>();
+    expected.add(new HashSet<>(Arrays.asList(0, 1)));
+    expected.add(new HashSet<>(Arrays.asList(2)));
+    expected.add(new HashSet<>(Arrays.asList(3)));
+    assertEquals(expected, new ProbabilisticBisimilarity(probabilities, labels, 10).decide());
+  }
+}
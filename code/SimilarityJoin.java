@@ -0,0 +1,130 @@
+/**
+ * Finds all pairs of states of a labelled Markov chain within a given distance of each other,
+ * without computing the full distance matrix.  As the distance is invariant under probabilistic
+ * bisimilarity, only one representative of each bisimilarity class is considered; every pair of
+ * representatives that is found gives rise to all pairs of their classes.  Pairs of representatives
+ * are decided, from cheap to expensive, by
+ * <ul>
+ * <li>the pairs at distance one, see ZeroOneDistances,</li>
+ * <li>the bounds of DistanceBounds,</li>
+ * <li>a few steps of AnytimeDistance, and finally</li>
+ * <li>an exact computation by DistanceComputer, restricted to the pairs reachable from the pair.</li>
+ * </ul>
+ * The distances computed exactly are kept by the DistanceComputer, so that the pairs explored by
+ * one exact computation are decided without further work, also by later joins.
+ * The pairs are reported to a listener as soon as they are confirmed.
+ */
+public class SimilarityJoin {
+  final double delta = 1e-10; //a precision factor to test approximate equality
+  final int precision = 8; //the precision of the transition probabilities used to decide bisimilarity
+  final int steps = 3; //the number of anytime steps before the distance is computed exactly
+
+  private final double[][] probabilities;
+  private final int[] labels;
+  private final int states;
+  private final ZeroOneDistances extremes;
+  private final DistanceBounds bounds;
+  private final DistanceComputer computer;
+  private long solved;
+
+  /**
+   * Receives the pairs that are found.
+   */
+  public interface Listener {
+    void found(int s, int t);
+  }
+
+  public SimilarityJoin(double[][] probabilities, int[] labels) {
+    this.probabilities = probabilities;
+    this.labels = labels;
+    this.states = labels.length;
+    this.extremes = new ZeroOneDistances(probabilities, labels, precision);
+    this.bounds = new DistanceBounds(probabilities, labels);
+    this.computer = new DistanceComputer(probabilities, labels);
+    this.solved = 0;
+  }
+
+  /**
+   * Reports every pair (s, t) with s &lt; t and d(s, t) &lt;= epsilon to the given listener.
+   *
+   * @param epsilon  the largest distance of a pair that is reported
+   * @param listener receives the pairs as they are found
+   */
+  public void join(double epsilon, Listener listener) {
+    //the smallest state of the bisimilarity class of each state
+    int[] representative = new int[states];
+    for (int s = 0; s < states; s++) {
+      representative[s] = s;
+      for (int t = 0; t < s; t++) {
+        if (extremes.is_zero(s, t)) {
+          representative[s] = representative[t];
+          break;
+        }
+      }
+    }
+
+    //bisimilar states are at distance zero
+    for (int s = 0; s < states; s++) {
+      for (int t = s + 1; t < states; t++) {
+        if (representative[s] == representative[t]) {
+          listener.found(s, t);
+        }
+      }
+    }
+
+    for (int s = 0; s < states; s++) {
+      if (representative[s] != s) {
+        continue;
+      }
+      for (int t = s + 1; t < states; t++) {
+        if (representative[t] == t && within(s, t, epsilon)) {
+          //all pairs of the classes of s and t are at the same distance
+          for (int u = 0; u < states; u++) {
+            if (representative[u] == s) {
+              for (int v = 0; v < states; v++) {
+                if (representative[v] == t) {
+                  listener.found(Math.min(u, v), Math.max(u, v));
+                }
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  //Test whether the distance of the given non-bisimilar states is at most epsilon.
+  private boolean within(int s, int t, double epsilon) {
+    if (labels[s] != labels[t] || extremes.is_one(s, t)) {
+      return epsilon >= 1.0;
+    }
+    if (bounds.upper(s, t) <= epsilon) {
+      return true;
+    } else if (bounds.lower(s, t) > epsilon) {
+      return false;
+    }
+
+    double distance = computer.decided(s, t);
+    if (distance >= 0) {
+      return distance <= epsilon + delta;
+    }
+
+    AnytimeDistance anytime = new AnytimeDistance(probabilities, labels, s, t, extremes);
+    for (int i = 0; i < steps && anytime.hasNext(); i++) {
+      AnytimeDistance.Interval interval = anytime.next();
+      if (interval.upper <= epsilon) {
+        return true;
+      } else if (interval.lower > epsilon) {
+        return false;
+      }
+    }
+
+    solved++;
+    return computer.compute_distance(s, t) <= epsilon + delta;
+  }
+
+  //The number of pairs whose distance had to be computed exactly by the last joins.
+  public long get_solved() {
+    return solved;
+  }
+}
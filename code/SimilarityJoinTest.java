@@ -0,0 +1,40 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SimilarityJoinTest {
+  @Test
+  public void test_join() {
+    int states = 30;
+    int labels = 2;
+
+    LabelledMarkovChain LMC = Main.getRandomInstance(states, labels);
+    double[][] distances = new DistanceComputer(LMC.probability, LMC.label).compute_distances();
+    SimilarityJoin join = new SimilarityJoin(LMC.probability, LMC.label);
+
+    for (double epsilon : new double[]{0.0, 0.1, 0.3, 0.5, 1.0}) {
+      HashSet<List<Integer>> expected = new HashSet<>();
+      for (int s = 0; s < states; s++) {
+        for (int t = s + 1; t < states; t++) {
+          if (distances[s][t] <= epsilon) {
+            expected.add(Arrays.asList(s, t));
+          }
+        }
+      }
+      HashSet<List<Integer>> found = new HashSet<>();
+      join.join(epsilon, (s, t) -> found.add(Arrays.asList(s, t)));
+      for (int s = 0; s < states; s++) {
+        for (int t = s + 1; t < states; t++) {
+          //pairs too close to epsilon may go either way
+          if (Math.abs(distances[s][t] - epsilon) >= 1e-8) {
+            assertEquals(expected.contains(Arrays.asList(s, t)), found.contains(Arrays.asList(s, t)));
+          }
+        }
+      }
+    }
+  }
+}
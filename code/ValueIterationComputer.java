@@ -0,0 +1,295 @@
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Computes the (discounted) probabilistic bisimilarity distances of all pairs of states of a
+ * labelled Markov chain by value iteration.  Each sweep computes an optimal coupling for every pair
+ * with respect to the distances of the previous sweep; the pairs of a sweep are split across a
+ * fork/join pool.  The iteration stops as soon as the maximum change of a sweep falls below the
+ * given tolerance.
+ *
+ * <p>
+ * In the asynchronous mode, there is a single distance matrix, updated in place by all workers
+ * without barriers, Gauss-Seidel style, so that every coupling uses the most recent distances.
+ */
+public class ValueIterationComputer {
+  final int precision = 8; //the precision of the transition probabilities used to decide bisimilarity
+  final int threshold = 16; //the number of pairs below which a sweep is not split any further
+
+  private final double[][] probabilities;
+  private final int[] labels;
+  private final int states;
+  private final double discount;
+  private final double tolerance;
+  private final ForkJoinPool pool;
+  private int iterations;
+  private double residual;
+
+  /**
+   * Initializes this computer.
+   *
+   * @param probabilities transition probability matrix
+   * @param labels        state labels
+   * @param discount      the discount factor, in (0, 1]
+   * @param tolerance     the iteration stops once the maximum change of a sweep is below this tolerance
+   * @param pool          the pool in which the sweeps are run
+   */
+  public ValueIterationComputer(double[][] probabilities, int[] labels, double discount, double tolerance,
+                                ForkJoinPool pool) {
+    if (discount <= 0.0 || discount > 1.0) {
+      throw new IllegalArgumentException("the discount factor should be in (0, 1]");
+    }
+    if (tolerance <= 0.0) {
+      throw new IllegalArgumentException("the tolerance should be positive");
+    }
+    this.probabilities = probabilities;
+    this.labels = labels;
+    this.states = labels.length;
+    this.discount = discount;
+    this.tolerance = tolerance;
+    this.pool = pool;
+  }
+
+  public ValueIterationComputer(double[][] probabilities, int[] labels, double discount, double tolerance) {
+    this(probabilities, labels, discount, tolerance, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns the distances of all pairs of states.  Without discount, the tolerance only bounds
+   * the change of the last sweep, not the distance to the fixed point.
+   *
+   * @return the distances of all pairs of states
+   */
+  public double[][] compute_distances() {
+    double[][] current = new double[states][states];
+    boolean[][] bisimilar = DistanceComputer.bisimilar(probabilities, labels, precision);
+
+    ArrayList<int[]> pairs = new ArrayList<>();
+    for (int u = 0; u < states; u++) {
+      for (int v = 0; v < states; v++) {
+        if (labels[u] != labels[v]) {
+          current[u][v] = 1.0;
+        } else if (u < v && !bisimilar[u][v]) {
+          pairs.add(new int[]{u, v});
+        }
+      }
+    }
+
+    double[][] next = new double[states][states];
+    for (int u = 0; u < states; u++) {
+      next[u] = current[u].clone();
+    }
+
+    iterations = 0;
+    residual = Double.MAX_VALUE;
+    double[] change = new double[pairs.size()];
+    while (residual >= tolerance && !pairs.isEmpty()) {
+      pool.invoke(new Sweep(pairs, 0, pairs.size(), current, next, change));
+      residual = 0.0;
+      for (int p = 0; p < pairs.size(); p++) {
+        residual = Math.max(residual, change[p]);
+      }
+      double[][] swap = current;
+      current = next;
+      next = swap;
+      iterations++;
+    }
+    if (pairs.isEmpty()) {
+      residual = 0.0;
+    }
+    return current;
+  }
+
+  /**
+   * Returns the distances of all pairs of states, computed asynchronously.  The pairs are split
+   * into chunks.  Each worker repeatedly claims the next chunk, recomputes the distances of its
+   * pairs in a single shared store, in which a distance is written atomically as the bits of a
+   * double, and records the maximum change of the chunk.  A pass over a chunk whose change is not
+   * below the tolerance advances a global generation.  The workers stop once every chunk has
+   * finished a pass whose change is below the tolerance and which began in the current generation,
+   * that is, after the last large change of any chunk, so that the tolerance bounds the change of a
+   * full sweep as in the synchronous mode.  As the distances only increase from zero, the least
+   * fixed point is approached as in the synchronous mode, usually in fewer sweeps.
+   *
+   * @return the distances of all pairs of states
+   */
+  public double[][] compute_distances_asynchronously() {
+    AtomicLongArray store = new AtomicLongArray(states * states);
+    boolean[][] bisimilar = DistanceComputer.bisimilar(probabilities, labels, precision);
+
+    ArrayList<int[]> pairs = new ArrayList<>();
+    for (int u = 0; u < states; u++) {
+      for (int v = 0; v < states; v++) {
+        if (labels[u] != labels[v]) {
+          store.set(u * states + v, Double.doubleToLongBits(1.0));
+        } else if (u < v && !bisimilar[u][v]) {
+          pairs.add(new int[]{u, v});
+        }
+      }
+    }
+
+    int chunks = (pairs.size() + threshold - 1) / threshold;
+    AtomicLongArray changes = new AtomicLongArray(chunks); //the last recorded change of each chunk
+    for (int c = 0; c < chunks; c++) {
+      changes.set(c, Double.doubleToLongBits(Double.MAX_VALUE));
+    }
+    AtomicLongArray clean = new AtomicLongArray(chunks); //the generation in which the last pass over each chunk began, or -1 if its change was large or it is in progress
+    for (int c = 0; c < chunks; c++) {
+      clean.set(c, -1);
+    }
+    AtomicLong generation = new AtomicLong(); //the number of passes whose change was large
+    AtomicInteger next = new AtomicInteger();
+    AtomicLong updates = new AtomicLong();
+    int workers = Math.min(Math.max(1, pool.getParallelism()), Math.max(1, chunks));
+    if (chunks > 0) {
+      pool.invoke(new RecursiveAction() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+          ArrayList<Relaxation> relaxations = new ArrayList<>();
+          for (int w = 0; w < workers; w++) {
+            relaxations.add(new Relaxation(pairs, chunks, store, changes, clean, generation, next, updates));
+          }
+          invokeAll(relaxations);
+        }
+      });
+    }
+
+    iterations = chunks == 0 ? 0 : (int) ((updates.get() + chunks - 1) / chunks);
+    residual = 0.0;
+    for (int c = 0; c < chunks; c++) {
+      residual = Math.max(residual, Double.longBitsToDouble(changes.get(c)));
+    }
+    double[][] distances = new double[states][states];
+    for (int u = 0; u < states; u++) {
+      for (int v = 0; v < states; v++) {
+        distances[u][v] = Double.longBitsToDouble(store.get(Math.min(u, v) * states + Math.max(u, v)));
+        if (labels[u] != labels[v]) {
+          distances[u][v] = 1.0;
+        }
+      }
+    }
+    return distances;
+  }
+
+  //The number of sweeps of the last computation; in the asynchronous mode, the number of chunk updates divided by the number of chunks.
+  public int get_iterations() {
+    return iterations;
+  }
+
+  public double get_residual() {
+    return residual;
+  }
+
+  //Claims chunks of pairs and updates their distances in place, until every chunk has had a pass with a small change since the last large change.
+  private class Relaxation extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    final ArrayList<int[]> pairs;
+    final int chunks;
+    final AtomicLongArray store;
+    final AtomicLongArray changes;
+    final AtomicLongArray clean;
+    final AtomicLong generation;
+    final AtomicInteger next;
+    final AtomicLong updates;
+
+    Relaxation(ArrayList<int[]> pairs, int chunks, AtomicLongArray store, AtomicLongArray changes,
+               AtomicLongArray clean, AtomicLong generation, AtomicInteger next, AtomicLong updates) {
+      this.pairs = pairs;
+      this.chunks = chunks;
+      this.store = store;
+      this.changes = changes;
+      this.clean = clean;
+      this.generation = generation;
+      this.next = next;
+      this.updates = updates;
+    }
+
+    @Override
+    protected void compute() {
+      //a pair (u, v) with u > v is found at (v, u)
+      OptimalCouplingComputer.DistanceFunction distances =
+        (u, v) -> Double.longBitsToDouble(store.get(Math.min(u, v) * states + Math.max(u, v)));
+      while (!converged()) {
+        int c = Math.floorMod(next.getAndIncrement(), chunks);
+        if (clean.get(c) == generation.get()) {
+          Thread.yield(); //the chunk has not changed much since the last large change; wait for the chunks in progress
+          continue;
+        }
+        clean.set(c, -1); //a pass in progress may still change the distances by a lot
+        long start = generation.get();
+        double change = 0.0;
+        for (int p = c * threshold; p < Math.min(pairs.size(), (c + 1) * threshold); p++) {
+          int u = pairs.get(p)[0];
+          int v = pairs.get(p)[1];
+          double distance = discount * new OptimalCouplingComputer(u, v, probabilities, distances).compute_distance();
+          double previous = Double.longBitsToDouble(store.getAndSet(u * states + v, Double.doubleToLongBits(distance)));
+          change = Math.max(change, Math.abs(distance - previous));
+        }
+        changes.set(c, Double.doubleToLongBits(change));
+        if (change >= tolerance) {
+          generation.incrementAndGet();
+        } else {
+          clean.set(c, start);
+        }
+        updates.incrementAndGet();
+      }
+    }
+
+    //Tests whether every chunk has finished a pass with a small change that began after the last large change of any chunk.
+    private boolean converged() {
+      long current = generation.get();
+      for (int c = 0; c < chunks; c++) {
+        if (clean.get(c) != current) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  //Computes the distances of a range of pairs with respect to the distances of the previous sweep.
+  private class Sweep extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    final ArrayList<int[]> pairs;
+    final int from;
+    final int to;
+    final double[][] current;
+    final double[][] next;
+    final double[] change;
+
+    Sweep(ArrayList<int[]> pairs, int from, int to, double[][] current, double[][] next, double[] change) {
+      this.pairs = pairs;
+      this.from = from;
+      this.to = to;
+      this.current = current;
+      this.next = next;
+      this.change = change;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= threshold) {
+        for (int p = from; p < to; p++) {
+          int u = pairs.get(p)[0];
+          int v = pairs.get(p)[1];
+          double distance = discount * new OptimalCouplingComputer(u, v, probabilities, current).compute_distance();
+          next[u][v] = distance;
+          next[v][u] = distance;
+          change[p] = Math.abs(distance - current[u][v]);
+        }
+      } else {
+        int middle = (from + to) / 2;
+        invokeAll(new Sweep(pairs, from, middle, current, next, change),
+          new Sweep(pairs, middle, to, current, next, change));
+      }
+    }
+  }
+}
@@ -0,0 +1,183 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+/**
+ * A vantage-point tree over the states of a labelled Markov chain, with respect to the
+ * probabilistic bisimilarity pseudometric, supporting k-nearest-neighbour and range queries.
+ * Every node splits the remaining states into those within the median distance of its vantage
+ * point and those beyond, so that the triangle inequality allows a query to skip subtrees.
+ * The distances are obtained from a distance function and memoized, so they may be computed
+ * lazily, in which case only the pairs needed to build the tree and to answer the queries are
+ * evaluated.
+ *
+ * <p>
+ * Peter Yianilos.  Data structures and algorithms for nearest neighbor search in general metric
+ * spaces.  In <i>Proceedings of SODA</i>, 1993.
+ */
+public class VantagePointTree {
+  private final OptimalCouplingComputer.DistanceFunction distances;
+  private final HashMap<Long, Double> memo;
+  private final int states;
+  private final Node root;
+
+  private static class Node {
+    final int vantage;
+    final double radius; //the median distance to the vantage point
+    final Node inside; //the states within the radius
+    final Node outside; //the states beyond the radius
+
+    Node(int vantage, double radius, Node inside, Node outside) {
+      this.vantage = vantage;
+      this.radius = radius;
+      this.inside = inside;
+      this.outside = outside;
+    }
+  }
+
+  /**
+   * Builds the tree for the given states.
+   *
+   * @param states    the number of states
+   * @param distances the distance function, which is called at most once per pair of states
+   */
+  public VantagePointTree(int states, OptimalCouplingComputer.DistanceFunction distances) {
+    this.distances = distances;
+    this.memo = new HashMap<>();
+    this.states = states;
+    ArrayList<Integer> all = new ArrayList<>();
+    for (int s = 0; s < states; s++) {
+      all.add(s);
+    }
+    this.root = build(all);
+  }
+
+  //Returns a tree over the given distance matrix.
+  public static VantagePointTree of(double[][] distances) {
+    return new VantagePointTree(distances.length, (u, v) -> distances[u][v]);
+  }
+
+  //Returns a tree whose distances are computed on the fly, only for the pairs that are needed.
+  public static VantagePointTree lazy(double[][] probabilities, int[] labels) {
+    DistanceComputer computer = new DistanceComputer(probabilities, labels);
+    return new VantagePointTree(labels.length, computer::compute_distance);
+  }
+
+  //The distance of u and v, evaluated once.
+  private double distance(int u, int v) {
+    if (u == v) {
+      return 0.0;
+    }
+    long key = (long) Math.min(u, v) * states + Math.max(u, v);
+    Double distance = memo.get(key);
+    if (distance == null) {
+      distance = distances.get(u, v);
+      memo.put(key, distance);
+    }
+    return distance;
+  }
+
+  private Node build(ArrayList<Integer> states) {
+    if (states.isEmpty()) {
+      return null;
+    }
+    int vantage = states.get(0);
+    ArrayList<Integer> rest = new ArrayList<>(states.subList(1, states.size()));
+    if (rest.isEmpty()) {
+      return new Node(vantage, 0.0, null, null);
+    }
+    rest.sort((u, v) -> Double.compare(distance(vantage, u), distance(vantage, v)));
+    int middle = rest.size() / 2;
+    double radius = distance(vantage, rest.get(middle));
+    ArrayList<Integer> inside = new ArrayList<>();
+    ArrayList<Integer> outside = new ArrayList<>();
+    for (int u : rest) {
+      if (distance(vantage, u) <= radius) {
+        inside.add(u);
+      } else {
+        outside.add(u);
+      }
+    }
+    return new Node(vantage, radius, build(inside), build(outside));
+  }
+
+  /**
+   * Returns the k states closest to the given state, other than the state itself, ordered by
+   * distance.
+   *
+   * @param state a state
+   * @param k     the number of states
+   * @return the k states closest to the given state
+   */
+  public int[] nearest(int state, int k) {
+    //the candidates found so far, the farthest first
+    PriorityQueue<double[]> best = new PriorityQueue<>((x, y) -> Double.compare(y[1], x[1]));
+    nearest(root, state, k, best);
+    ArrayList<double[]> sorted = new ArrayList<>(best);
+    sorted.sort((x, y) -> Double.compare(x[1], y[1]));
+    int[] nearest = new int[sorted.size()];
+    for (int i = 0; i < nearest.length; i++) {
+      nearest[i] = (int) sorted.get(i)[0];
+    }
+    return nearest;
+  }
+
+  private void nearest(Node node, int state, int k, PriorityQueue<double[]> best) {
+    if (node == null || k <= 0) {
+      return;
+    }
+    double distance = distance(state, node.vantage);
+    if (node.vantage != state) {
+      if (best.size() < k) {
+        best.add(new double[]{node.vantage, distance});
+      } else if (distance < best.peek()[1]) {
+        best.remove();
+        best.add(new double[]{node.vantage, distance});
+      }
+    }
+    //search the side containing the state first
+    Node first = distance <= node.radius ? node.inside : node.outside;
+    Node second = distance <= node.radius ? node.outside : node.inside;
+    nearest(first, state, k, best);
+    double tau = best.size() < k ? Double.MAX_VALUE : best.peek()[1];
+    if (second == node.outside ? distance + tau >= node.radius : distance - tau <= node.radius) {
+      nearest(second, state, k, best);
+    }
+  }
+
+  /**
+   * Returns the states within the given distance of the given state, other than the state itself.
+   *
+   * @param state  a state
+   * @param radius the largest distance of a returned state
+   * @return the states within the given distance of the given state, in increasing order
+   */
+  public ArrayList<Integer> range(int state, double radius) {
+    ArrayList<Integer> found = new ArrayList<>();
+    range(root, state, radius, found);
+    Collections.sort(found);
+    return found;
+  }
+
+  private void range(Node node, int state, double radius, ArrayList<Integer> found) {
+    if (node == null) {
+      return;
+    }
+    double distance = distance(state, node.vantage);
+    if (node.vantage != state && distance <= radius) {
+      found.add(node.vantage);
+    }
+    if (distance - radius <= node.radius) {
+      range(node.inside, state, radius, found);
+    }
+    if (distance + radius > node.radius) {
+      range(node.outside, state, radius, found);
+    }
+  }
+
+  //The number of pairs whose distance has been evaluated.
+  public int get_evaluations() {
+    return memo.size();
+  }
+}
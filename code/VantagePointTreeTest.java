@@ -0,0 +1,46 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VantagePointTreeTest {
+  @Test
+  public void test_queries() {
+    int states = 40;
+    int labels = 2;
+
+    LabelledMarkovChain LMC = Main.getRandomInstance(states, labels);
+    double[][] distances = new DistanceComputer(LMC.probability, LMC.label).compute_distances();
+    VantagePointTree eager = VantagePointTree.of(distances);
+    VantagePointTree lazy = VantagePointTree.lazy(LMC.probability, LMC.label);
+
+    for (int s = 0; s < states; s++) {
+      //the distances of the k nearest states, found by a linear scan
+      Integer[] others = new Integer[states - 1];
+      for (int t = 0, i = 0; t < states; t++) {
+        if (t != s) {
+          others[i++] = t;
+        }
+      }
+      final int state = s;
+      Arrays.sort(others, (u, v) -> Double.compare(distances[state][u], distances[state][v]));
+      for (VantagePointTree tree : new VantagePointTree[]{eager, lazy}) {
+        int[] nearest = tree.nearest(s, 5);
+        assertEquals(5, nearest.length);
+        for (int i = 0; i < 5; i++) {
+          assertEquals(distances[s][others[i]], distances[s][nearest[i]], 1e-8);
+        }
+
+        ArrayList<Integer> expected = new ArrayList<>();
+        for (int t = 0; t < states; t++) {
+          if (t != s && distances[s][t] <= 0.5) {
+            expected.add(t);
+          }
+        }
+        assertEquals(expected, tree.range(s, 0.5));
+      }
+    }
+  }
+}
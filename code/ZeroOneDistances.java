@@ -0,0 +1,116 @@
+import java.util.ArrayList;
+import java.util.LinkedList;
+
+/**
+ * Decides which pairs of states of a labelled Markov chain have distance zero and which have
+ * distance one, without solving any linear program.  The pairs at distance zero are the
+ * probabilistic bisimilar ones.  A pair with the same label has distance less than one if and only
+ * if it can reach a bisimilar pair in the graph of pairs restricted to pairs with the same label,
+ * where there is an edge from (s, t) to (u, v) if s can transition to u and t can transition to v.
+ * All other pairs have distance one.
+ *
+ * <p>
+ * Qiyi Tang and Franck van Breugel.  Deciding probabilistic bisimilarity distance one for labelled
+ * Markov chains.  In <i>Proceedings of CAV</i>, 2018.
+ */
+public class ZeroOneDistances {
+  final double delta = 1e-10; //a precision factor to test approximate equality
+
+  private final int[] labels;
+  private final int[][] support; //the states reachable from each state in one transition
+  private final boolean[][] zero;
+  private final boolean[][] one;
+
+  public ZeroOneDistances(double[][] probabilities, int[] labels, int precision) {
+    int states = labels.length;
+    this.labels = labels;
+    this.support = PairGraph.supports(probabilities, delta);
+    this.zero = DistanceComputer.bisimilar(probabilities, labels, precision);
+    for (int s = 0; s < states; s++) {
+      this.zero[s][s] = true;
+    }
+
+    //the states that can transition to each state in one transition
+    ArrayList<ArrayList<Integer>> predecessors = new ArrayList<>();
+    for (int u = 0; u < states; u++) {
+      predecessors.add(new ArrayList<>());
+    }
+    for (int s = 0; s < states; s++) {
+      for (int u : support[s]) {
+        predecessors.get(u).add(s);
+      }
+    }
+
+    //backward search from the bisimilar pairs through pairs with the same label
+    boolean[][] reaches = new boolean[states][states];
+    LinkedList<int[]> queue = new LinkedList<>();
+    for (int s = 0; s < states; s++) {
+      for (int t = 0; t < states; t++) {
+        if (zero[s][t]) {
+          reaches[s][t] = true;
+          queue.add(new int[]{s, t});
+        }
+      }
+    }
+    while (!queue.isEmpty()) {
+      int[] pair = queue.remove();
+      for (int s : predecessors.get(pair[0])) {
+        for (int t : predecessors.get(pair[1])) {
+          if (labels[s] == labels[t] && !reaches[s][t]) {
+            reaches[s][t] = true;
+            queue.add(new int[]{s, t});
+          }
+        }
+      }
+    }
+
+    this.one = new boolean[states][states];
+    for (int s = 0; s < states; s++) {
+      for (int t = 0; t < states; t++) {
+        this.one[s][t] = !reaches[s][t];
+      }
+    }
+  }
+
+  //Test whether s and t are at distance zero, that is, whether they are probabilistic bisimilar.
+  public boolean is_zero(int s, int t) {
+    return zero[s][t];
+  }
+
+  //Test whether s and t are at distance one.
+  public boolean is_one(int s, int t) {
+    return one[s][t];
+  }
+
+  public boolean[][] get_zero() {
+    return zero;
+  }
+
+  /**
+   * Test whether the next distance iterate of the given pair is one, given the current iterates.
+   * Starting from zero, the iterate of a pair with the same label becomes one exactly when the
+   * iterates of all pairs in the product of the supports are one, which can only happen for pairs
+   * at distance one.
+   *
+   * @param s        a state
+   * @param t        a state
+   * @param previous the current distance iterates
+   * @return whether the next distance iterate of s and t is one
+   */
+  public boolean is_one(int s, int t, double[][] previous) {
+    if (labels[s] != labels[t]) {
+      return true;
+    }
+    if (!one[s][t]) {
+      return false;
+    }
+    for (int u : support[s]) {
+      for (int v : support[t]) {
+        if (previous[u][v] < 1.0 - delta) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+}
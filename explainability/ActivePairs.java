@@ -0,0 +1,124 @@
+package explainability;
+
+/**
+ * An index of the active pairs of states of a labelled Markov chain, that is, the ordered pairs of states
+ * with the same label that are not probabilistic bisimilar.  Only these pairs get a nontrivial function and
+ * formula when the distances are explained; the formula of a pair of bisimilar states is true and that of a
+ * pair of states with different labels is the label of the second state.  The active pairs are numbered
+ * consecutively, so that data of the active pairs can be stored in arrays of the size of the index.
+ */
+public class ActivePairs {
+	private int[] label;
+	private int[] block; // block[s]: the smallest state that is bisimilar to s
+	private int[][] index; // index[s][t]: the number of the pair (s, t) if it is active, -1 otherwise
+	private int[] first; // first[i]: the first state of the active pair with number i
+	private int[] second; // second[i]: the second state of the active pair with number i
+
+	/**
+	 * Initializes the index of the active pairs of states of the given labelled Markov chain.
+	 *
+	 * @param label the labelling function of a labelled Markov chain
+	 * @param bisimilar the probabilistic bisimilarity of the labelled Markov chain
+	 */
+	public ActivePairs(int[] label, boolean[][] bisimilar) {
+		int numberOfStates = label.length;
+		this.label = label;
+		this.block = new int[numberOfStates];
+		for (int s = 0; s < numberOfStates; s++) {
+			int t = 0;
+			while (!bisimilar[s][t]) {
+				t++;
+			}
+			this.block[s] = t;
+		}
+
+		int size = 0;
+		this.index = new int[numberOfStates][numberOfStates];
+		for (int s = 0; s < numberOfStates; s++) {
+			for (int t = 0; t < numberOfStates; t++) {
+				this.index[s][t] = label[s] == label[t] && !bisimilar[s][t] ? size++ : -1;
+			}
+		}
+		this.first = new int[size];
+		this.second = new int[size];
+		for (int s = 0; s < numberOfStates; s++) {
+			for (int t = 0; t < numberOfStates; t++) {
+				if (this.index[s][t] != -1) {
+					this.first[this.index[s][t]] = s;
+					this.second[this.index[s][t]] = t;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of active pairs.
+	 *
+	 * @return the number of active pairs
+	 */
+	public int size() {
+		return this.first.length;
+	}
+
+	/**
+	 * Returns the number of the given pair of states if it is active, and -1 otherwise.
+	 *
+	 * @param s a state
+	 * @param t a state
+	 * @return the number of the given pair of states if it is active, -1 otherwise
+	 */
+	public int index(int s, int t) {
+		return this.index[s][t];
+	}
+
+	/**
+	 * Returns the first state of the active pair with the given number.
+	 *
+	 * @param i the number of an active pair
+	 * @return the first state of the active pair with the given number
+	 */
+	public int getFirst(int i) {
+		return this.first[i];
+	}
+
+	/**
+	 * Returns the second state of the active pair with the given number.
+	 *
+	 * @param i the number of an active pair
+	 * @return the second state of the active pair with the given number
+	 */
+	public int getSecond(int i) {
+		return this.second[i];
+	}
+
+	/**
+	 * Tests whether the given states are probabilistic bisimilar.
+	 *
+	 * @param s a state
+	 * @param t a state
+	 * @return true if the given states are probabilistic bisimilar, false otherwise
+	 */
+	public boolean isBisimilar(int s, int t) {
+		return this.block[s] == this.block[t];
+	}
+
+	/**
+	 * Returns the labelling function of the labelled Markov chain.
+	 *
+	 * @return the labelling function of the labelled Markov chain
+	 */
+	public int[] getLabels() {
+		return this.label;
+	}
+
+	/**
+	 * Returns a string representation of this index.
+	 *
+	 * @return a string representation of this index
+	 */
+	@Override
+	public String toString() {
+		long pairs = (long) this.label.length * this.label.length;
+		return String.format("%d of %d pairs active (%.3f)", this.size(), pairs, pairs == 0 ? 0 : (double) this.size() / pairs);
+	}
+}
@@ -17,7 +17,12 @@
 
 package explainability;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -27,7 +32,8 @@ import java.util.Set;
  * @author Franck van Breugel
  */
 public class And extends Formula {
-	private Set<Formula> subformulas;
+	private final Set<Formula> subformulas;
+	private final int hash;
 
 	/**
 	 * Initializes this formula as an empty conjunction.
@@ -42,38 +48,55 @@ public class And extends Formula {
 	 * @param simplified whether this formula is simplified
 	 */
 	public And(boolean simplified) {
-		super(simplified);
-		this.subformulas = new HashSet<Formula>();
+		this(Collections.<Formula>emptySet(), simplified);
 	}
 
 	/**
-	 * Returns the subformulas.
-	 *
-	 * @return the subformulas
+	 * Initializes this formula as a conjunction of the given formulas.
+	 * 
+	 * @param subformulas the subformulas
+	 * @param simplified whether this formula is simplified
 	 */
-	public Set<Formula> getSubformulas() {
-		return this.subformulas;
+	public And(Collection<? extends Formula> subformulas, boolean simplified) {
+		this(subformulas, simplified, null);
 	}
 
 	/**
-	 * Add the given formula to this conjunction.
+	 * Initializes this formula as a conjunction of the given canonical formulas of the given factory.
 	 * 
-	 * @param formula a formula
+	 * @param subformulas the subformulas
+	 * @param simplified whether this formula is simplified
+	 * @param factory the factory of which the subformulas are canonical, or null
 	 */
-	public void add(Formula formula) {
-		this.subformulas.add(formula);
+	And(Collection<? extends Formula> subformulas, boolean simplified, FormulaFactory factory) {
+		super(simplified, factory);
+		this.subformulas = Collections.unmodifiableSet(new HashSet<Formula>(subformulas));
+		int hash = 17; // independent of the order in which the subformulas are iterated
+		for (Formula subformula : this.subformulas) {
+			hash += subformula.hashCode();
+		}
+		this.hash = hash;
+	}
+
+	/**
+	 * Returns the subformulas.
+	 *
+	 * @return the subformulas
+	 */
+	public Set<Formula> getSubformulas() {
+		return this.subformulas;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public Formula simplify() {
+	Formula simplify(Simplifier simplifier) {
 		// simplify each subformula, exclude True, simplify a conjunction to False if it contains False, simplify an empty conjunction to True 
-		And simplification = new And();
+		Set<Formula> simplification = new HashSet<Formula>();
 		boolean isEmpty = true; // simplified conjunction is empty
 		for (Formula subformula : this.getSubformulas()) {
-			Formula simplified = subformula.simplified ? subformula : subformula.simplify();
+			Formula simplified = simplifier.simplify(subformula);
 			if (simplified instanceof False) {
 				return simplified;
 			} else if (!(simplified instanceof True)) {
@@ -82,21 +105,21 @@ public class And extends Formula {
 			}
 		}
 		if (isEmpty) {
-			return new True();
+			return True.TRUE;
 		}
 
 		// exclude each subformula which is smaller than or equal to another subformula
-		And furtherSimplification = new And(true);
-		for (Formula one : simplification.getSubformulas()) {
+		List<Formula> furtherSimplification = new ArrayList<Formula>();
+		for (Formula one : simplification) {
 			boolean found = false; // one is smaller than another subformula 
-			for (Formula other : simplification.getSubformulas()) {
-				found = found || (one != other && Compare.isSmaller(one, other));
+			for (Formula other : simplification) {
+				found = found || (one != other && simplifier.isSmaller(one, other));
 			}
 			if (!found) {
 				furtherSimplification.add(one);
 			}
 		}
-		return furtherSimplification;
+		return new And(furtherSimplification, true);
 	}
 
 	/**
@@ -131,9 +154,18 @@ public class And extends Formula {
 	 * false otherwise.
 	 */
 	public boolean equals(Object object) {		
-		if (object != null && object instanceof And) {
+		if (object == this) {
+			return true;
+		} else if (object != null && object instanceof And && object.hashCode() == this.hashCode()) {
 			And other = (And) object;
-			return this.subformulas.equals(other.subformulas);
+			if (this.isCanonicalWith(other)) {
+				// canonical subformulas are equal if and only if they are the same object
+				Set<Formula> same = Collections.newSetFromMap(new IdentityHashMap<Formula, Boolean>());
+				same.addAll(other.subformulas);
+				return this.subformulas.size() == same.size() && same.containsAll(this.subformulas);
+			} else {
+				return this.subformulas.equals(other.subformulas);
+			}
 		} else {
 			return false;
 		}
@@ -145,11 +177,7 @@ public class And extends Formula {
 	 * @return the hash code of this formula
 	 */
 	public int hashCode() {
-		int hash = 17;
-		for (Formula subformula : this.subformulas) {
-			hash = hash * 31 + subformula.hashCode();
-		}
-		return hash;
+		return this.hash;
 	}
 
 	/**
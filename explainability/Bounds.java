@@ -0,0 +1,161 @@
+package explainability;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cheap bounds on the distance of a pair of states, used to avoid solving a linear program.
+ * The total variation distance of the transition probability distributions is an upper bound.
+ * For each label, the difference of the probabilities of transitioning to a state with that label
+ * is a lower bound, provided that states with different labels are at distance one.  If the
+ * bounds coincide, then the distance is known and the indicator function of that label is an
+ * optimal vertex of the Lipschitz polytope.
+ */
+public class Bounds {
+	private static final double EPSILON = 0.0000000001;
+
+	private double[][] probability;
+	private int[] label;
+	private double[][] mass; // mass[s][l]: probability of transitioning from s to a state with label l
+	private AtomicLong considered;
+	private AtomicLong pruned;
+
+	/**
+	 * Initializes the bounds for the given labelled Markov chain.
+	 * 
+	 * @param probability the transition probabilities of a labelled Markov chain
+	 * @param label the labelling function of a labelled Markov chain
+	 */
+	public Bounds(double[][] probability, int[] label) {
+		this.probability = probability;
+		this.label = label;
+		int numberOfLabels = 0;
+		for (int l : label) {
+			numberOfLabels = Math.max(numberOfLabels, l + 1);
+		}
+		this.mass = new double[probability.length][numberOfLabels];
+		for (int s = 0; s < probability.length; s++) {
+			for (int u = 0; u < probability.length; u++) {
+				this.mass[s][label[u]] += probability[s][u];
+			}
+		}
+		this.considered = new AtomicLong();
+		this.pruned = new AtomicLong();
+	}
+
+	/**
+	 * Returns the total variation distance of the transition probability distributions of the given states.
+	 * 
+	 * @param s a state
+	 * @param t a state
+	 * @return an upper bound of the distance of the given states
+	 */
+	public double upper(int s, int t) {
+		double upper = 0;
+		for (int u = 0; u < this.probability.length; u++) {
+			upper += Math.max(0, this.probability[s][u] - this.probability[t][u]);
+		}
+		return upper;
+	}
+
+	/**
+	 * Returns the label for which the probabilities of the given states of transitioning to a state with
+	 * that label differ the most.
+	 * 
+	 * @param s a state
+	 * @param t a state
+	 * @return the label that gives the best lower bound of the distance of the given states
+	 */
+	private int best(int s, int t) {
+		int best = 0;
+		for (int l = 1; l < this.mass[s].length; l++) {
+			if (Math.abs(this.mass[s][l] - this.mass[t][l]) > Math.abs(this.mass[s][best] - this.mass[t][best])) {
+				best = l;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns a lower bound of the distance of the given states, provided that states with different
+	 * labels are at distance one.
+	 * 
+	 * @param s a state
+	 * @param t a state
+	 * @return a lower bound of the distance of the given states
+	 */
+	public double lower(int s, int t) {
+		int l = this.best(s, t);
+		return Math.abs(this.mass[s][l] - this.mass[t][l]);
+	}
+
+	/**
+	 * Tests whether the given distances are one for all states with different labels, so that 
+	 * the lower bound is valid.
+	 * 
+	 * @param distance the distances of the states of the labelled Markov chain
+	 * @return true if the states with different labels are at distance one, false otherwise
+	 */
+	public boolean isApplicable(double[][] distance) {
+		for (int u = 0; u < this.label.length; u++) {
+			for (int v = 0; v < this.label.length; v++) {
+				if (this.label[u] != this.label[v] && distance[u][v] < 1) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns an optimal vertex of the Lipschitz polytope for the given states, if the bounds of their 
+	 * distance coincide, and null otherwise.  This method also keeps track of the fraction of the pairs 
+	 * that are pruned.
+	 * 
+	 * @param s a state
+	 * @param t a state
+	 * @param applicable whether states with different labels are at distance one
+	 * @return an optimal vertex of the Lipschitz polytope for the given states or null
+	 * @pre. the transition probability distributions of s and t have the same total probability 
+	 */
+	public double[] find(int s, int t, boolean applicable) {
+		this.considered.incrementAndGet();
+		double upper = this.upper(s, t);
+		int numberOfStates = this.probability.length;
+		if (upper < EPSILON) {
+			this.pruned.incrementAndGet();
+			return new double[numberOfStates]; // the same distributions, every function is optimal
+		} else if (applicable) {
+			int l = this.best(s, t);
+			if (upper - Math.abs(this.mass[s][l] - this.mass[t][l]) < EPSILON) {
+				this.pruned.incrementAndGet();
+				boolean positive = this.mass[s][l] > this.mass[t][l];
+				double[] vertex = new double[numberOfStates];
+				for (int u = 0; u < numberOfStates; u++) {
+					vertex[u] = (this.label[u] == l) == positive ? 1 : 0;
+				}
+				return vertex;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the fraction of the pairs that are pruned.
+	 * 
+	 * @return the fraction of the pairs that are pruned
+	 */
+	public double getPruned() {
+		long considered = this.considered.get();
+		return considered == 0 ? 0 : (double) this.pruned.get() / considered;
+	}
+
+	/**
+	 * Returns a string representation of the statistics of these bounds.
+	 *
+	 * @return a string representation of the statistics of these bounds
+	 */
+	@Override
+	public String toString() {
+		return String.format("%d of %d pairs pruned (%.3f)", this.pruned.get(), this.considered.get(), this.getPruned());
+	}
+}
@@ -0,0 +1,111 @@
+package explainability;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of bounded size.  If the cache is full, the least recently used entry is evicted.
+ * The cache keeps track of the number of hits and misses.  The cache can be shared by 
+ * multiple threads.
+ * 
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public class Cache<K, V> {
+	private final Map<K, V> entries;
+	private long hits;
+	private long misses;
+
+	/**
+	 * Initializes this cache as empty with the given capacity.
+	 * 
+	 * @param capacity the maximum number of entries of this cache
+	 * @pre. capacity &gt; 0
+	 */
+	public Cache(final int capacity) {
+		this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+				return this.size() > capacity;
+			}
+		};
+		this.hits = 0;
+		this.misses = 0;
+	}
+
+	/**
+	 * Returns the value associated with the given key, or null if this cache contains
+	 * no such value.
+	 * 
+	 * @param key a key
+	 * @return the value associated with the given key, or null if there is none
+	 */
+	public synchronized V get(K key) {
+		V value = this.entries.get(key);
+		if (value == null) {
+			this.misses++;
+		} else {
+			this.hits++;
+		}
+		return value;
+	}
+
+	/**
+	 * Associates the given value with the given key in this cache.
+	 * 
+	 * @param key a key
+	 * @param value a value
+	 */
+	public synchronized void put(K key, V value) {
+		this.entries.put(key, value);
+	}
+
+	/**
+	 * Returns the number of entries of this cache.
+	 * 
+	 * @return the number of entries of this cache
+	 */
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Returns the number of lookups that found a value.
+	 * 
+	 * @return the number of lookups that found a value
+	 */
+	public synchronized long getHits() {
+		return this.hits;
+	}
+
+	/**
+	 * Returns the number of lookups that found no value.
+	 * 
+	 * @return the number of lookups that found no value
+	 */
+	public synchronized long getMisses() {
+		return this.misses;
+	}
+
+	/**
+	 * Returns the fraction of lookups that found a value.
+	 * 
+	 * @return the fraction of lookups that found a value
+	 */
+	public synchronized double getHitRate() {
+		long lookups = this.hits + this.misses;
+		return lookups == 0 ? 0 : (double) this.hits / lookups;
+	}
+
+	/**
+	 * Returns a string representation of the statistics of this cache.
+	 *
+	 * @return a string representation of the statistics of this cache
+	 */
+	@Override
+	public synchronized String toString() {
+		return String.format("%d hits, %d misses, hit rate %.3f", this.hits, this.misses, this.getHitRate());
+	}
+}
@@ -17,7 +17,65 @@
 
 package explainability;
 
+/**
+ * Compares formulas.  The comparisons can be remembered, so that a question that is asked again, also as part
+ * of the comparison of bigger formulas, is answered without comparing the formulas again.  Formulas are compared
+ * by identity, which suits formulas that are hash-consed or simplified by the same Simplifier.
+ */
 public class Compare {
+	/**
+	 * A pair of formulas, compared by identity.
+	 */
+	private static class Pair {
+		private final Formula smaller;
+		private final Formula bigger;
+
+		/**
+		 * Initializes this pair with the given formulas.
+		 * 
+		 * @param smaller a formula
+		 * @param bigger a formula
+		 */
+		public Pair(Formula smaller, Formula bigger) {
+			this.smaller = smaller;
+			this.bigger = bigger;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(this.smaller) + System.identityHashCode(this.bigger);
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (object instanceof Pair) {
+				Pair other = (Pair) object;
+				return this.smaller == other.smaller && this.bigger == other.bigger;
+			} else {
+				return false;
+			}
+		}
+	}
+
+	private Cache<Pair, Boolean> results; // results of the comparisons, or null if they are not remembered
+
+	/**
+	 * Initializes this comparison without remembering the results.
+	 */
+	public Compare() {
+		this.results = null;
+	}
+
+	/**
+	 * Initializes this comparison, remembering the results of at most the given number of comparisons.
+	 * 
+	 * @param capacity the maximum number of results that are remembered
+	 * @pre. capacity &gt; 0
+	 */
+	public Compare(int capacity) {
+		this.results = new Cache<Pair, Boolean>(capacity);
+	}
+
 	/**
 	 * Tests whether smaller is smaller than bigger.  Both smaller and bigger are assumed to be simplified and different from null.
 	 * If the method returns true, then smaller is smaller than bigger.  Even if the method returns false, then smaller may be smaller 
@@ -28,6 +86,47 @@ public class Compare {
 	 * @return approximation of whether smaller is smaller than bigger
 	 */
 	public static boolean isSmaller(Formula smaller, Formula bigger) {
+		return new Compare().test(smaller, bigger);
+	}
+
+	/**
+	 * Tests whether smaller is smaller than bigger, as isSmaller, remembering the result.
+	 * 
+	 * @param smaller a simplified formula
+	 * @param bigger a simplified formula
+	 * @return approximation of whether smaller is smaller than bigger
+	 */
+	public boolean test(Formula smaller, Formula bigger) {
+		if (this.results == null) {
+			return this.compare(smaller, bigger);
+		}
+		Pair pair = new Pair(smaller, bigger);
+		Boolean result = this.results.get(pair);
+		if (result == null) {
+			result = this.compare(smaller, bigger);
+			this.results.put(pair, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the results that are remembered, or null if they are not remembered.  The statistics of the
+	 * returned cache show how often a comparison was answered from the remembered results.
+	 * 
+	 * @return the results that are remembered, or null
+	 */
+	public Cache<?, ?> getResults() {
+		return this.results;
+	}
+
+	/**
+	 * Tests whether smaller is smaller than bigger, comparing the subformulas by test.
+	 * 
+	 * @param smaller a simplified formula
+	 * @param bigger a simplified formula
+	 * @return approximation of whether smaller is smaller than bigger
+	 */
+	private boolean compare(Formula smaller, Formula bigger) {
 		if (smaller instanceof True) {
 			return true; 
 		} 
@@ -37,7 +136,7 @@ public class Compare {
 		if (smaller instanceof Next && bigger instanceof Next) {
 			Formula smallerSub = ((Next) smaller).getFormula();
 			Formula biggerSub = ((Next) bigger).getFormula();
-			if (isSmaller(smallerSub, biggerSub)) {
+			if (this.test(smallerSub, biggerSub)) {
 				return true; 
 			}
 		} 
@@ -47,7 +146,7 @@ public class Compare {
 			if (bigger instanceof Minus) {
 				double biggerShift = ((Minus) bigger).getShift();
 				Formula biggerSub = ((Minus) bigger).getFormula();
-				if (isSmaller(smallerSub, biggerSub) && smallerShift >= biggerShift) {
+				if (this.test(smallerSub, biggerSub) && smallerShift >= biggerShift) {
 					return true; 
 				}
 			} 
@@ -58,7 +157,7 @@ public class Compare {
 					return true; 
 				}
 			}
-			if (isSmaller(smallerSub, bigger) || smallerSub.equals(bigger)) {
+			if (this.test(smallerSub, bigger) || smallerSub.equals(bigger)) {
 				return true; 
 			}
 		} 
@@ -68,18 +167,18 @@ public class Compare {
 			if (smaller instanceof Plus) {
 				double smallerShift = ((Plus) smaller).getShift();
 				Formula smallerSub = ((Plus) smaller).getFormula();
-				if (isSmaller(smallerSub, biggerSub) && smallerShift <= plusShift) {
+				if (this.test(smallerSub, biggerSub) && smallerShift <= plusShift) {
 					return true; 
 				}
 			}
 			if (biggerSub instanceof Minus) {
 				double minusShift = ((Minus) biggerSub).getShift();
 				Formula biggerSubSub = ((Minus) biggerSub).getFormula();
-				if (isSmaller(smaller, biggerSubSub) && minusShift <= plusShift) {
+				if (this.test(smaller, biggerSubSub) && minusShift <= plusShift) {
 					return true; 
 				}
 			}
-			if (isSmaller(smaller, biggerSub)) {
+			if (this.test(smaller, biggerSub)) {
 				return true; 
 			}
 		}
@@ -88,7 +187,7 @@ public class Compare {
 			for (Formula smallerSub : ((And) smaller).getSubformulas()) {
 				boolean exists = false; // exists a subformula biggerSub of bigger such that smallerSub is smaller than or equal to biggerSub
 				for (Formula biggerSub : ((And) bigger).getSubformulas()) {
-					exists = exists || isSmaller(smallerSub, biggerSub);
+					exists = exists || this.test(smallerSub, biggerSub);
 				}
 				forall = forall && exists;
 			}
@@ -101,7 +200,7 @@ public class Compare {
 			for (Formula smallerSub : ((Or) smaller).getSubformulas()) {
 				boolean forall = true; // for all subformulas biggerSub of bigger such that smallerSub is smaller than or equal to biggerSub
 				for (Formula biggerSub : ((Or) bigger).getSubformulas()) {
-					forall = forall && isSmaller(smallerSub, biggerSub);
+					forall = forall && this.test(smallerSub, biggerSub);
 				}
 				exists = exists || forall;
 			}
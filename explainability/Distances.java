@@ -17,6 +17,16 @@
 
 package explainability;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
 /**
  * Explains the probabilistic bisimilarity distances of a labelled Markov chain.
  * 
@@ -34,88 +44,456 @@ public class Distances {
 	 * @return 
 	 */
 	public static Formula[][][] explain(double[][] probability, int[] label, int number) {
-		final Formula TRUE = new True();
+		int numberOfStates = probability.length;
+		return explain(probability, label, number, new Cache<List<Integer>, double[]>(numberOfStates * numberOfStates), new Bounds(probability, label));
+	}
+
+	/**
+	 * Returns for each state pair of the given labelled Markov chain, a sequence of formulas of the given length
+	 * that explains the probabilistic bisimilarity distances.  States with the same transition probability 
+	 * distribution give rise to the same linear program.  Each vertex is stored in the given cache, keyed by
+	 * the IDs of the distributions and the iteration, so that it is found only once per iteration.  The keys
+	 * also identify the call, so that a cache shared by several calls, for example for different labelled
+	 * Markov chains, never returns the vertices of another call.  Before 
+	 * a linear program is solved, the given bounds are checked; if they coincide, no linear program is needed.
+	 * Pairs in acyclic parts of the graph of pairs stop changing after a number of iterations; from then on,
+	 * their vertex is kept, since the distances only increase and it therefore remains optimal.  Pairs at
+	 * distance one get their vertex without a linear program as soon as all pairs of their supports are at
+	 * distance one.
+	 * 
+	 * @param probability the transition probabilities of a labelled Markov chain
+	 * @param label the labelling function of a labelled Markov chain
+	 * @param number the number of formulas for each state pair
+	 * @param vertices cache of the vertices of the Lipschitz polytope, only reused within this call
+	 * @param bounds bounds of the distances of the labelled Markov chain
+	 * @return 
+	 */
+	public static Formula[][][] explain(double[][] probability, int[] label, int number, Cache<List<Integer>, double[]> vertices, Bounds bounds) {
+		return explain(probability, label, number, vertices, bounds, null);
+	}
+
+	/**
+	 * Returns for each state pair of the given labelled Markov chain, a sequence of formulas of the given length
+	 * that explains the probabilistic bisimilarity distances.  The pairs are explained in parallel by the given
+	 * executor; see table.
+	 * 
+	 * @param probability the transition probabilities of a labelled Markov chain
+	 * @param label the labelling function of a labelled Markov chain
+	 * @param number the number of formulas for each state pair
+	 * @param vertices cache of the vertices of the Lipschitz polytope, only reused within this call
+	 * @param bounds bounds of the distances of the labelled Markov chain
+	 * @param executor executor of the tasks, or null to explain the pairs sequentially
+	 * @return 
+	 */
+	public static Formula[][][] explain(double[][] probability, int[] label, int number, Cache<List<Integer>, double[]> vertices, Bounds bounds, ExecutorService executor) {
+		return table(probability, label, number, vertices, bounds, executor).toArray();
+	}
 
+	/**
+	 * Returns a table of formulas that, for each state pair of the given labelled Markov chain, contains a 
+	 * sequence of formulas of the given length that explains the probabilistic bisimilarity distances.  Only
+	 * the active pairs, with the same label but not bisimilar, get a function and formulas of their own, so 
+	 * that the memory needed is proportional to the number of active pairs.  Within each iteration, the pairs
+	 * (s, t) are explained by one task per state s, run by the given executor.  A task only writes the 
+	 * distances, functions and formulas of its own pairs and only reads those of other pairs from the previous
+	 * iteration, which is complete before the tasks start.  Hence, the formulas do not depend on the number of
+	 * threads or the order in which the tasks run.  Every linear program gets its own solver, and the cache and
+	 * bounds are thread-safe.  The formulas are created by a FormulaFactory, so that a subformula shared by
+	 * several pairs or iterations is stored only once.
+	 * 
+	 * @param probability the transition probabilities of a labelled Markov chain
+	 * @param label the labelling function of a labelled Markov chain
+	 * @param number the number of formulas for each state pair
+	 * @param vertices cache of the vertices of the Lipschitz polytope, only reused within this call
+	 * @param bounds bounds of the distances of the labelled Markov chain
+	 * @param executor executor of the tasks, or null to explain the pairs sequentially
+	 * @return a table of the formulas for each state pair
+	 */
+	public static FormulaTable table(double[][] probability, int[] label, int number, Cache<List<Integer>, double[]> vertices, Bounds bounds, ExecutorService executor) {
+		return table(probability, label, number, vertices, bounds, executor, 0);
+	}
+
+	/**
+	 * Returns a table of formulas that, for each state pair of the given labelled Markov chain, contains a 
+	 * sequence of formulas of the given length that explains the probabilistic bisimilarity distances.  The
+	 * values of a function that are within the given tolerance of each other are treated as one value, the
+	 * smallest of them, so that fewer subformulas are needed.  For a positive tolerance, the formulas explain 
+	 * the distances up to the tolerance.
+	 * 
+	 * @param probability the transition probabilities of a labelled Markov chain
+	 * @param label the labelling function of a labelled Markov chain
+	 * @param number the number of formulas for each state pair
+	 * @param vertices cache of the vertices of the Lipschitz polytope, only reused within this call
+	 * @param bounds bounds of the distances of the labelled Markov chain
+	 * @param executor executor of the tasks, or null to explain the pairs sequentially
+	 * @param tolerance the largest difference of the values of a function that are treated as one value
+	 * @return a table of the formulas for each state pair
+	 */
+	public static FormulaTable table(double[][] probability, int[] label, int number, Cache<List<Integer>, double[]> vertices, Bounds bounds, ExecutorService executor, double tolerance) {
+		return explain(probability, label, number, vertices, bounds, executor, tolerance, number + 1, null);
+	}
+
+	/**
+	 * Receives the formulas of the iterations, one iteration at a time.
+	 */
+	public interface Listener {
+		/**
+		 * Receives the formulas of the given iteration.  During this call, the given table contains the formulas
+		 * of the given iteration and, if any, of the previous one.  Afterwards, they may be overwritten.
+		 * 
+		 * @param n an iteration
+		 * @param formula a table containing the formulas of the given iteration
+		 */
+		void explained(int n, FormulaTable formula);
+	}
+
+	/**
+	 * Hands, for each state pair of the given labelled Markov chain, a sequence of formulas of the given length
+	 * that explains the probabilistic bisimilarity distances to the given listener, one iteration at a time, as
+	 * soon as the iteration is complete.  Only the formulas of the last two iterations are retained by the
+	 * returned table, which is all that the next iteration reads.  However, the formulas of an iteration are
+	 * built from those of the previous one, and the factory of the table keeps every formula it has created,
+	 * so the memory needed still grows with the number of formulas.  The formulas are those of table.
+	 * 
+	 * @param probability the transition probabilities of a labelled Markov chain
+	 * @param label the labelling function of a labelled Markov chain
+	 * @param number the number of formulas for each state pair
+	 * @param vertices cache of the vertices of the Lipschitz polytope, only reused within this call
+	 * @param bounds bounds of the distances of the labelled Markov chain
+	 * @param executor executor of the tasks, or null to explain the pairs sequentially
+	 * @param listener receives the formulas of each iteration, in increasing order of iteration
+	 * @return a table of the formulas of the last two iterations
+	 */
+	public static FormulaTable stream(double[][] probability, int[] label, int number, Cache<List<Integer>, double[]> vertices, Bounds bounds, ExecutorService executor, Listener listener) {
+		return stream(probability, label, number, vertices, bounds, executor, 0, listener);
+	}
+
+	/**
+	 * Hands, for each state pair of the given labelled Markov chain, a sequence of formulas of the given length
+	 * that explains the probabilistic bisimilarity distances to the given listener, one iteration at a time.  The
+	 * values of a function that are within the given tolerance of each other are treated as one value; see table.
+	 * 
+	 * @param probability the transition probabilities of a labelled Markov chain
+	 * @param label the labelling function of a labelled Markov chain
+	 * @param number the number of formulas for each state pair
+	 * @param vertices cache of the vertices of the Lipschitz polytope, only reused within this call
+	 * @param bounds bounds of the distances of the labelled Markov chain
+	 * @param executor executor of the tasks, or null to explain the pairs sequentially
+	 * @param tolerance the largest difference of the values of a function that are treated as one value
+	 * @param listener receives the formulas of each iteration, in increasing order of iteration
+	 * @return a table of the formulas of the last two iterations
+	 */
+	public static FormulaTable stream(double[][] probability, int[] label, int number, Cache<List<Integer>, double[]> vertices, Bounds bounds, ExecutorService executor, double tolerance, Listener listener) {
+		return explain(probability, label, number, vertices, bounds, executor, tolerance, 2, listener);
+	}
+
+	/**
+	 * Explains the probabilistic bisimilarity distances of the given labelled Markov chain, retaining the
+	 * formulas of the given number of most recent iterations and handing each iteration to the given listener.
+	 * 
+	 * @param probability the transition probabilities of a labelled Markov chain
+	 * @param label the labelling function of a labelled Markov chain
+	 * @param number the number of formulas for each state pair
+	 * @param vertices cache of the vertices of the Lipschitz polytope, only reused within this call
+	 * @param bounds bounds of the distances of the labelled Markov chain
+	 * @param executor executor of the tasks, or null to explain the pairs sequentially
+	 * @param tolerance the largest difference of the values of a function that are treated as one value
+	 * @param retained the number of iterations of which the formulas are retained, at least two
+	 * @param listener receives the formulas of each iteration, or null
+	 * @return a table of the formulas of the retained iterations
+	 */
+	private static FormulaTable explain(double[][] probability, int[] label, int number, Cache<List<Integer>, double[]> vertices, Bounds bounds, ExecutorService executor, double tolerance, int retained, Listener listener) {
 		int numberOfStates = probability.length;
+		Functions functions = new Functions(probability, label, vertices, bounds, executor);
+		ActivePairs pairs = functions.getPairs();
 
-		Formula[][][] formula = new Formula[numberOfStates][numberOfStates][number + 1];
-		double[][] distance = new double[numberOfStates][numberOfStates];
-		double[][][] function = new double[numberOfStates][numberOfStates][numberOfStates];
-
-		boolean[][] bisimilar = ProbabilisticBisimilarity.decide(probability, label);
-		for (int s = 0; s < numberOfStates; s++) {
-			for (int t = 0; t < numberOfStates; t++) {
-				formula[s][t][0] = TRUE;
-				if (bisimilar[s][t]) {
-					formula[s][t][1] = TRUE;
-				} else if (label[s] != label[t]) {
-					formula[s][t][1] = new Label(label[t]);
-				} else {
-					formula[s][t][1] = TRUE;
-					for (int u = 0; u < numberOfStates; u++) {
-						function[s][t][u] = 0;
+		FormulaFactory factory = new FormulaFactory();
+		FormulaTable formula = new FormulaTable(pairs, number, retained, factory);
+		for (int n = 0; n <= Math.min(number, 1); n++) {
+			formula.start(n);
+			for (int i = 0; i < pairs.size(); i++) {
+				formula.set(i, n, factory.getTrue());
+			}
+			if (listener != null) {
+				listener.explained(n, formula);
+			}
+		}
+
+		for (int k = 1; k < number; k++) {
+			final int n = k;
+			functions.next(n);
+			double[][] distance = functions.getDistance();
+			formula.start(n + 1);
+			forEachState(numberOfStates, executor, s -> {
+				Formula[][] subformula = scratch(numberOfStates);
+				for (int t = 0; t < numberOfStates; t++) {
+					int i = pairs.index(s, t);
+					if (i != -1) { // otherwise, the formula follows from the bisimilarity and the labels
+						formula.set(i, n + 1, explain(t, functions.getFunction(i), tolerance, distance, probability, (u, v) -> formula.get(u, v, n), subformula, factory));
 					}
 				}
+			});
+			if (listener != null) {
+				listener.explained(n + 1, formula);
 			}
 		}
+		return formula;
+	}
+
+	/**
+	 * Returns for each of the given pairs of states of the given labelled Markov chain, a sequence of formulas of 
+	 * the given length that explains the probabilistic bisimilarity distances.  The formula of a pair for an 
+	 * iteration only depends on the formulas for the previous iteration of the pairs (u, v) to which the function 
+	 * of the pair assigns different values.  Only the formulas of the given pairs and of the pairs they depend on
+	 * are constructed, each only once, so that formulas that are shared by several pairs are constructed once.
+	 * The distances and functions are still computed for all pairs and retained for all iterations, since the
+	 * linear program of a pair depends on all distances of the previous iteration.  The formulas are those of 
+	 * table.
+	 * 
+	 * @param probability the transition probabilities of a labelled Markov chain
+	 * @param label the labelling function of a labelled Markov chain
+	 * @param number the number of formulas for each state pair
+	 * @param vertices cache of the vertices of the Lipschitz polytope, only reused within this call
+	 * @param bounds bounds of the distances of the labelled Markov chain
+	 * @param executor executor of the tasks, or null to compute the distances and functions sequentially
+	 * @param target the pairs of states to be explained; target[j] = { s, t }
+	 * @return for each of the given pairs, the sequence of formulas; formula[j][n] is the formula of pair j
+	 * for iteration n
+	 */
+	public static Formula[][] explain(double[][] probability, int[] label, int number, Cache<List<Integer>, double[]> vertices, Bounds bounds, ExecutorService executor, int[][] target) {
+		return explain(probability, label, number, vertices, bounds, executor, 0, target);
+	}
 
+	/**
+	 * Returns for each of the given pairs of states of the given labelled Markov chain, a sequence of formulas of 
+	 * the given length that explains the probabilistic bisimilarity distances, constructing only the formulas the
+	 * given pairs depend on.  The values of a function that are within the given tolerance of each other are
+	 * treated as one value; see table.
+	 * 
+	 * @param probability the transition probabilities of a labelled Markov chain
+	 * @param label the labelling function of a labelled Markov chain
+	 * @param number the number of formulas for each state pair
+	 * @param vertices cache of the vertices of the Lipschitz polytope, only reused within this call
+	 * @param bounds bounds of the distances of the labelled Markov chain
+	 * @param executor executor of the tasks, or null to compute the distances and functions sequentially
+	 * @param tolerance the largest difference of the values of a function that are treated as one value
+	 * @param target the pairs of states to be explained; target[j] = { s, t }
+	 * @return for each of the given pairs, the sequence of formulas; formula[j][n] is the formula of pair j
+	 * for iteration n
+	 */
+	public static Formula[][] explain(double[][] probability, int[] label, int number, Cache<List<Integer>, double[]> vertices, Bounds bounds, ExecutorService executor, double tolerance, int[][] target) {
+		int numberOfStates = probability.length;
+		Functions functions = new Functions(probability, label, vertices, bounds, executor);
+		double[][][] distance = new double[number][][]; // distance[n]: the distances of iteration n
+		double[][][] function = new double[number][][]; // function[n]: the functions of the active pairs of iteration n
 		for (int n = 1; n < number; n++) {
-			for (int s = 0; s < numberOfStates; s++) {
-				for (int t = 0; t < numberOfStates; t++) {
-					if (bisimilar[s][t]) {
-						distance[s][t] = 0;
-					} else if (label[s] != label[t]) {
-						distance[s][t] = 1;
+			functions.next(n);
+			distance[n] = new double[numberOfStates][];
+			for (int u = 0; u < numberOfStates; u++) {
+				distance[n][u] = functions.getDistance()[u].clone();
+			}
+			function[n] = functions.getFunctions();
+		}
+
+		FormulaFactory factory = new FormulaFactory();
+		Map<Long, Formula> explained = new HashMap<Long, Formula>();
+		Formula[][] formula = new Formula[target.length][number + 1];
+		for (int j = 0; j < target.length; j++) {
+			for (int n = 0; n <= number; n++) {
+				formula[j][n] = explain(target[j][0], target[j][1], n, tolerance, probability, label, functions.getPairs(), distance, function, explained, factory);
+			}
+		}
+		return formula;
+	}
+
+	/**
+	 * Returns the formula of the given pair of states for the given iteration, constructing the formulas it 
+	 * depends on if they have not been constructed yet.
+	 * 
+	 * @param s a state
+	 * @param t a state
+	 * @param n an iteration
+	 * @param tolerance the largest difference of the values of a function that are treated as one value
+	 * @param probability the transition probabilities of a labelled Markov chain
+	 * @param label the labelling function of a labelled Markov chain
+	 * @param pairs the active pairs of the labelled Markov chain
+	 * @param distance the distances of each iteration
+	 * @param function the functions of the active pairs of each iteration
+	 * @param explained the formulas constructed so far, keyed by iteration and the number of the active pair
+	 * @param factory the factory of the formulas
+	 * @return the formula of the given pair of states for the given iteration
+	 */
+	private static Formula explain(int s, int t, int n, double tolerance, double[][] probability, int[] label, ActivePairs pairs, double[][][] distance, double[][][] function, Map<Long, Formula> explained, FormulaFactory factory) {
+		int i = pairs.index(s, t);
+		if (n == 0 || pairs.isBisimilar(s, t)) {
+			return factory.getTrue();
+		} else if (i == -1) {
+			return factory.label(label[t]);
+		} else if (n == 1) {
+			return factory.getTrue();
+		} else {
+			long key = (long) n * pairs.size() + i;
+			Formula formula = explained.get(key);
+			if (formula == null) {
+				formula = explain(t, function[n - 1][i], tolerance, distance[n - 1], probability, (u, v) -> explain(u, v, n - 1, tolerance, probability, label, pairs, distance, function, explained, factory), scratch(probability.length), factory);
+				explained.put(key, formula);
+			}
+			return formula;
+		}
+	}
+
+	/**
+	 * The formulas of the pairs of states for the previous iteration.
+	 */
+	private interface Previous {
+		/**
+		 * Returns the formula of the given pair of states for the previous iteration.
+		 * 
+		 * @param u a state
+		 * @param v a state
+		 * @return the formula of the given pair of states for the previous iteration
+		 */
+		Formula get(int u, int v);
+	}
+
+	/**
+	 * Returns the formula of an active pair (s, t) for the next iteration, given its function and the 
+	 * distances and formulas of the current iteration.  The formula of (u, v) for the current iteration is 
+	 * only requested if the function assigns u and v different values.  The states are grouped by the value 
+	 * the function assigns to them.  The subformula for states u and v in the same group only depends on the
+	 * value of the group, so it is constructed once per group rather than once per pair.
+	 * 
+	 * @param t the second state of the pair
+	 * @param function the function of the pair
+	 * @param tolerance the largest difference of the values of the function that are treated as one value
+	 * @param distance the distances of the current iteration
+	 * @param probability the transition probabilities of a labelled Markov chain
+	 * @param previous the formulas of the current iteration
+	 * @param subformula scratch storage, as returned by scratch
+	 * @param factory the factory of the formulas
+	 * @return the formula of the pair for the next iteration
+	 */
+	private static Formula explain(int t, double[] function, double tolerance, double[][] distance, double[][] probability, Previous previous, Formula[][] subformula, FormulaFactory factory) {
+		int numberOfStates = probability.length;
+		int[] group = new int[numberOfStates];
+		double[] value = group(function, tolerance, group);
+		Formula[] same = new Formula[value.length]; // same[g]: the subformula for the states in group g
+		for (int g = 0; g < value.length; g++) {
+			same[g] = factory.plus(factory.getTrue(), value[g]);
+		}
+
+		for (int u = 0; u < numberOfStates; u++) {
+			for (int v = u + 1; v < numberOfStates; v++) {
+				if (group[u] != group[v]) { 
+					double fu = value[group[u]];
+					double fv = value[group[v]];
+					double minusShift = Math.max(distance[u][v] - Math.abs(fu - fv), 0); // mitigate rounding errors
+					double plusShift = Math.min(fu, fv);
+					if (fu > fv) {
+						subformula[u][v - u] = factory.plus(factory.minus(previous.get(u, v), minusShift), plusShift);
 					} else {
-						distance[s][t] = 0;
-						for (int u = 0; u < numberOfStates; u++) {
-							distance[s][t] += function[s][t][u] * (probability[s][u] - probability[t][u]);	
-						}
+						subformula[u][v - u] = factory.plus(factory.minus(previous.get(v, u), minusShift), plusShift);
 					}
 				}
 			}
+		}
+		List<Formula> disjunction = new ArrayList<Formula>();
+		List<Formula> conjunction = new ArrayList<Formula>();
+		for (int u = 0; u < numberOfStates; u++) {
+			conjunction.clear();
+			conjunction.add(same[group[u]]);
+			for (int v = 0; v < numberOfStates; v++) {
+				if (group[u] != group[v]) {
+					conjunction.add(u < v ? subformula[u][v - u] : subformula[v][u - v]);
+				}
+			}
+			disjunction.add(factory.and(conjunction));
+		}
+		double shift = 0;
+		for (int u = 0; u < numberOfStates; u++) {
+			shift += value[group[u]] * probability[t][u];
+		}
+		return factory.minus(factory.next(factory.or(disjunction)), shift);
+	}
+
+	/**
+	 * Groups the states by the value the given function assigns to them.  Going through the values in increasing
+	 * order, a value starts a new group if it exceeds the smallest value of the current group by more than the
+	 * given tolerance.  Hence, for a tolerance of zero, each group consists of the states with the same value.
+	 * 
+	 * @param function a function
+	 * @param tolerance the largest difference of the values of the function within a group
+	 * @param group group[u] is set to the group of state u
+	 * @return the value of each group, the smallest value of its states, in increasing order
+	 */
+	private static double[] group(double[] function, double tolerance, int[] group) {
+		double[] sorted = function.clone();
+		Arrays.sort(sorted);
+		double[] value = new double[sorted.length];
+		int size = 0;
+		for (double x : sorted) {
+			if (size == 0 || x - value[size - 1] > tolerance) {
+				value[size++] = x;
+			}
+		}
+		value = Arrays.copyOf(value, size);
+		for (int u = 0; u < function.length; u++) {
+			int g = Arrays.binarySearch(value, function[u]);
+			group[u] = g >= 0 ? g : -g - 2; // the last group whose value is smaller
+		}
+		return value;
+	}
 
-			Formula[][][][] subformula = new Formula[numberOfStates][numberOfStates][numberOfStates][numberOfStates];
+	/**
+	 * Returns scratch storage for the subformulas of a pair: subformula[u][v - u] is the subformula for 
+	 * (u, v) and (v, u) with u &lt; v.
+	 * 
+	 * @param numberOfStates the number of states
+	 * @return scratch storage for the subformulas of a pair
+	 */
+	private static Formula[][] scratch(int numberOfStates) {
+		Formula[][] subformula = new Formula[numberOfStates][];
+		for (int u = 0; u < numberOfStates; u++) {
+			subformula[u] = new Formula[numberOfStates - u];
+		}
+		return subformula;
+	}
+
+	/**
+	 * Runs the given task for each state, by the given executor or, if it is null, sequentially, and returns
+	 * once all have completed.
+	 * 
+	 * @param numberOfStates the number of states
+	 * @param executor executor of the tasks, or null
+	 * @param task the task, which is given the state
+	 */
+	static void forEachState(int numberOfStates, ExecutorService executor, IntConsumer task) {
+		if (executor == null) {
 			for (int s = 0; s < numberOfStates; s++) {
-				for (int t = 0; t < numberOfStates; t++) {
-					if (bisimilar[s][t]) {
-						formula[s][t][n + 1] = TRUE;
-					} else if (label[s] != label[t]) {
-						formula[s][t][n + 1] = new Label(label[t]);
-					} else {
-						function[s][t] = Vertex.find(distance, probability[s], probability[t]);
-						Or disjunction = new Or();
-						for (int u = 0; u < numberOfStates; u++) {
-							And conjunction = new And();
-							for (int v = 0; v < numberOfStates; v++) {
-								if (subformula[s][t][v][u] != null) {
-									subformula[s][t][u][v] = subformula[s][t][v][u];
-								} else {
-									if (function[s][t][u] == function[s][t][v]) { 
-										subformula[s][t][u][v] = new Plus(TRUE, function[s][t][u]);
-									} else {
-										double minusShift = Math.max(distance[u][v] - Math.abs(function[s][t][u] - function[s][t][v]), 0); // mitigate rounding errors
-										double plusShift = Math.min(function[s][t][u], function[s][t][v]);
-										if (function[s][t][u] > function[s][t][v]) {
-											subformula[s][t][u][v] = new Plus(new Minus(formula[u][v][n], minusShift), plusShift); 
-										} else {
-											subformula[s][t][u][v] = new Plus(new Minus(formula[v][u][n], minusShift), plusShift);
-										}
-									}
-								}
-								conjunction.add(subformula[s][t][u][v]);
-							}
-							disjunction.add(conjunction);
-						}
-						double shift = 0;
-						for (int u = 0; u < numberOfStates; u++) {
-							shift += function[s][t][u] * probability[t][u];
-						}
-						formula[s][t][n + 1] = new Minus(new Next(disjunction), shift);
-					}
+				task.accept(s);
+			}
+		} else {
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int s = 0; s < numberOfStates; s++) {
+				final int state = s;
+				futures.add(executor.submit(() -> task.accept(state)));
+			}
+			try {
+				for (Future<?> future : futures) {
+					future.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while explaining the distances", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				} else if (e.getCause() instanceof Error) {
+					throw (Error) e.getCause();
+				} else {
+					throw new IllegalStateException(e.getCause());
 				}
 			}
 		}
-		return formula;
 	}
 }
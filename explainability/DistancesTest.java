@@ -0,0 +1,182 @@
+package explainability;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the explanations only depend on the labelled Markov chain, and not on the number of threads, the
+ * way the formulas are handed out, or the calls that came before.
+ */
+class DistancesTest {
+	private static final int STATES = 10;
+	private static final int NUMBER = 4;
+	private static final int CHAINS = 15;
+
+	/**
+	 * Tests that repeated sequential and parallel explanations of random labelled Markov chains are the same.
+	 */
+	@Test
+	public void testDeterministic() {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Random random = new Random(0);
+			for (int chain = 0; chain < CHAINS; chain++) {
+				int[] label = new int[STATES];
+				double[][] probability = chain(random, label);
+				String sequential = explain(probability, label, null);
+				assertEquals(sequential, explain(probability, label, null));
+				assertEquals(sequential, explain(probability, label, executor));
+				assertEquals(sequential, explain(probability, label, executor));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Tests that repeated sequential and parallel computations of the functions of random labelled Markov chains
+	 * give exactly the same functions.
+	 */
+	@Test
+	public void testFunctions() {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Random random = new Random(2);
+			for (int chain = 0; chain < 5 * CHAINS; chain++) {
+				int[] label = new int[STATES];
+				double[][] probability = chain(random, label);
+				List<double[][]> sequential = functions(probability, label, null);
+				for (int run = 0; run < 2; run++) {
+					List<double[][]> parallel = functions(probability, label, run == 0 ? null : executor);
+					for (int n = 0; n < sequential.size(); n++) {
+						assertTrue(Arrays.deepEquals(sequential.get(n), parallel.get(n)));
+					}
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Tests that the streamed and the targeted explanations of random labelled Markov chains are those of table.
+	 */
+	@Test
+	public void testStreamAndTarget() {
+		Random random = new Random(1);
+		for (int chain = 0; chain < CHAINS; chain++) {
+			int[] label = new int[STATES];
+			double[][] probability = chain(random, label);
+			FormulaTable table = Distances.table(probability, label, NUMBER, cache(), new Bounds(probability, label), null);
+
+			List<String> streamed = new ArrayList<String>();
+			Distances.stream(probability, label, NUMBER, cache(), new Bounds(probability, label), null, (n, formula) -> streamed.add(iteration(formula, n)));
+			for (int n = 0; n <= NUMBER; n++) {
+				assertEquals(iteration(table, n), streamed.get(n));
+			}
+
+			int[][] target = { { 0, 1 }, { 2, 3 }, { 4, 5 } };
+			Formula[][] targeted = Distances.explain(probability, label, NUMBER, cache(), new Bounds(probability, label), null, target);
+			for (int j = 0; j < target.length; j++) {
+				for (int n = 0; n <= NUMBER; n++) {
+					assertEquals(table.get(target[j][0], target[j][1], n).toString(), targeted[j][n].toString());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the explanation of the given labelled Markov chain as a string.
+	 *
+	 * @param probability the transition probabilities of a labelled Markov chain
+	 * @param label the labelling function of a labelled Markov chain
+	 * @param executor executor of the tasks, or null to explain the pairs sequentially
+	 * @return the explanation of the given labelled Markov chain as a string
+	 */
+	private static String explain(double[][] probability, int[] label, ExecutorService executor) {
+		return Arrays.deepToString(Distances.explain(probability, label, NUMBER, cache(), new Bounds(probability, label), executor));
+	}
+
+	/**
+	 * Returns the functions of the active pairs of the given labelled Markov chain for the iterations of the
+	 * explanation.
+	 *
+	 * @param probability the transition probabilities of a labelled Markov chain
+	 * @param label the labelling function of a labelled Markov chain
+	 * @param executor executor of the tasks, or null to compute sequentially
+	 * @return the functions of the active pairs for each iteration
+	 */
+	private static List<double[][]> functions(double[][] probability, int[] label, ExecutorService executor) {
+		Functions functions = new Functions(probability, label, cache(), new Bounds(probability, label), executor);
+		List<double[][]> function = new ArrayList<double[][]>();
+		for (int n = 1; n < NUMBER; n++) {
+			functions.next(n);
+			function.add(functions.getFunctions());
+		}
+		return function;
+	}
+
+	/**
+	 * Returns the formulas of the given iteration of the given table as a string.
+	 *
+	 * @param table a table of formulas
+	 * @param n an iteration
+	 * @return the formulas of the given iteration of the given table as a string
+	 */
+	private static String iteration(FormulaTable table, int n) {
+		StringBuilder formulas = new StringBuilder();
+		for (int s = 0; s < STATES; s++) {
+			for (int t = 0; t < STATES; t++) {
+				formulas.append(table.get(s, t, n)).append('\n');
+			}
+		}
+		return formulas.toString();
+	}
+
+	/**
+	 * Returns an empty cache of vertices.
+	 *
+	 * @return an empty cache of vertices
+	 */
+	private static Cache<List<Integer>, double[]> cache() {
+		return new Cache<List<Integer>, double[]>(STATES * STATES);
+	}
+
+	/**
+	 * Returns the transition probabilities of a random labelled Markov chain and fills in its labels.
+	 *
+	 * @param random a random number generator
+	 * @param label the labels of the states, filled in by this method
+	 * @return the transition probabilities of a random labelled Markov chain
+	 */
+	private static double[][] chain(Random random, int[] label) {
+		double[][] probability = new double[STATES][STATES];
+		for (int s = 0; s < STATES; s++) {
+			label[s] = random.nextInt(2);
+			double sum = 0;
+			for (int t = 0; t < STATES; t++) {
+				if (random.nextDouble() < 0.3) {
+					probability[s][t] = 1 + random.nextInt(4);
+					sum += probability[s][t];
+				}
+			}
+			if (sum == 0) {
+				probability[s][s] = 1;
+				sum = 1;
+			}
+			for (int t = 0; t < STATES; t++) {
+				probability[s][t] /= sum;
+			}
+		}
+		return probability;
+	}
+}
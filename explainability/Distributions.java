@@ -0,0 +1,61 @@
+package explainability;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Identifies the states of a labelled Markov chain that have the same transition probability 
+ * distribution.
+ */
+public class Distributions {
+	/**
+	 * A transition probability distribution, compared by content.
+	 */
+	private static class Row {
+		private double[] probability;
+		private int hash;
+
+		/**
+		 * Initializes this row with the given transition probabilities.
+		 * 
+		 * @param probability the transition probabilities of a state
+		 */
+		public Row(double[] probability) {
+			this.probability = probability;
+			this.hash = Arrays.hashCode(probability);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			return object instanceof Row && Arrays.equals(this.probability, ((Row) object).probability);
+		}
+	}
+
+	/**
+	 * Returns for each state the ID of its transition probability distribution.  Two states
+	 * get the same ID if and only if their transition probability distributions are the same.
+	 * 
+	 * @param probability the transition probabilities of a labelled Markov chain
+	 * @return for each state the ID of its transition probability distribution
+	 */
+	public static int[] identify(double[][] probability) {
+		Map<Row, Integer> ids = new HashMap<Row, Integer>();
+		int[] id = new int[probability.length];
+		for (int s = 0; s < probability.length; s++) {
+			Row row = new Row(probability[s]);
+			Integer existing = ids.get(row);
+			if (existing == null) {
+				existing = ids.size();
+				ids.put(row, existing);
+			}
+			id[s] = existing;
+		}
+		return id;
+	}
+}
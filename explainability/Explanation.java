@@ -20,6 +20,10 @@ package explainability;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * 
@@ -33,31 +37,72 @@ public class Explanation {
 	/**
 	 * Prints the 
 	 * 
+	 * The arguments may be preceded by -statistics, in which case statistics of the caches, the bounds, the
+	 * formulas and the comparisons are printed to standard output as well.
+	 * 
 	 * @param args[0] base name of the transition probabilties and labels files as well as the formulas file
 	 * @param args[1] number of formulas
+	 * @param args[2] optional, first state of the only pair to be explained
+	 * @param args[3] optional, second state of the only pair to be explained
 	 */
 	public static void main(String[] args) {
+		boolean statistics = args.length > 0 && args[0].equals("-statistics");
+		if (statistics) {
+			args = Arrays.copyOfRange(args, 1, args.length);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
 		try {
 			LabelledMarkovChain chain = new LabelledMarkovChain(args[0]);
 			int number = Integer.parseInt(args[1]);
 			PrintStream output = new PrintStream(new File(args[0] + ".txt"));
-			//int s = Integer.parseInt(args[2]);
-			//int t = Integer.parseInt(args[3]);
 
 			double[][] probability = chain.getProbabilities();
 			int[] label = chain.getLabels();
 
-			Formula[][][] formula = Distances.explain(probability, label, number);
+			Cache<List<Integer>, double[]> vertices = new Cache<List<Integer>, double[]>(probability.length * probability.length);
+			Bounds bounds = new Bounds(probability, label);
+			Compare compare = new Compare(probability.length * probability.length * (number + 1));
+			if (args.length > 3) {
+				int s = Integer.parseInt(args[2]);
+				int t = Integer.parseInt(args[3]);
+				Formula[][] formula = Distances.explain(probability, label, number, vertices, bounds, executor, new int[][] { { s, t } });
+				Simplifier simplifier = new Simplifier(compare);
+				for (int n = 0; n <= number; n++) {
+					output.printf("Iteration %d%n", n);
+					output.printf("  Formula for (%d, %d)%n", s, t);
+					output.printf("    %s%n", formula[0][n]);
+					output.printf("    %s%n", simplifier.simplify(formula[0][n]));
+				}
+				if (statistics) {
+					System.out.printf("Vertices: %s%n", vertices);
+					System.out.printf("Bounds: %s%n", bounds);
+					System.out.printf("Comparisons: %s%n", compare.getResults());
+				}
+			} else {
+				int numberOfStates = probability.length;
+				FormulaTable table = Distances.stream(probability, label, number, vertices, bounds, executor, new Distances.Listener() {
+					private Simplifier simplifier = new Simplifier(compare);
 
-			int numberOfStates = probability.length;
-			for (int n = 0; n <= number; n++) {
-				output.printf("Iteration %d%n", n);
-				for (int s = 0; s < numberOfStates; s++) {
-					for (int t = 0; t < numberOfStates; t++) {
-						output.printf("  Formula for (%d, %d)%n", s, t);
-						output.printf("    %s%n", formula[s][t][n]);
-						output.printf("    %s%n", formula[s][t][n].simplify());
+					@Override
+					public void explained(int n, FormulaTable formula) {
+						// the formulas of this iteration consist of those of the previous one, which have been simplified already
+						this.simplifier = this.simplifier.next();
+						output.printf("Iteration %d%n", n);
+						for (int s = 0; s < numberOfStates; s++) {
+							for (int t = 0; t < numberOfStates; t++) {
+								output.printf("  Formula for (%d, %d)%n", s, t);
+								output.printf("    %s%n", formula.get(s, t, n));
+								output.printf("    %s%n", this.simplifier.simplify(formula.get(s, t, n)));
+							}
+						}
 					}
+				});
+				if (statistics) {
+					System.out.printf("Vertices: %s%n", vertices);
+					System.out.printf("Bounds: %s%n", bounds);
+					System.out.printf("Pairs: %s%n", table.getPairs());
+					System.out.printf("Formulas: %s%n", table.getFactory());
+					System.out.printf("Comparisons: %s%n", compare.getResults());
 				}
 			}
 		} catch (IllegalArgumentException e) {
@@ -66,6 +111,8 @@ public class Explanation {
 		} catch (FileNotFoundException e) {
 			System.out.printf("File %1$s.lab or %1$s.tra cannot be read%n", args[0]);
 			e.printStackTrace();
+		} finally {
+			executor.shutdown();
 		}
 	}
 }
@@ -24,6 +24,11 @@ package explainability;
  * @author Franck van Breugel
  */
 public class False extends Formula {
+	/**
+	 * The formula false.  Since it has no state, it can be shared.
+	 */
+	public static final False FALSE = new False();
+
 	/**
 	 * Initializes this formula.
 	 */
@@ -35,7 +40,7 @@ public class False extends Formula {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public Formula simplify() {
+	Formula simplify(Simplifier simplifier) {
 		return this;
 	}
 
@@ -57,7 +62,7 @@ public class False extends Formula {
 	 * false otherwise.
 	 */
 	public boolean equals(Object object) {
-		return object != null && object instanceof False;
+		return object == this || object != null && object instanceof False;
 	}
 
 	/**
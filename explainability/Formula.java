@@ -25,12 +25,13 @@ package explainability;
  */
 public abstract class Formula {
 	protected boolean simplified;
+	final FormulaFactory factory; // the factory of which the subformulas are canonical, or null
 	
 	/**
 	 * Initializes this formula.
 	 */
 	public Formula() {
-		this.simplified = false;
+		this(false);
 	}
 	
 	/**
@@ -39,15 +40,49 @@ public abstract class Formula {
 	 * @param simplified whether this formula is simplified
 	 */
 	public Formula(boolean simplified) {
+		this(simplified, null);
+	}
+
+	/**
+	 * Initializes this formula, whose subformulas are canonical formulas of the given factory.
+	 * 
+	 * @param simplified whether this formula is simplified
+	 * @param factory the factory of which the subformulas are canonical, or null
+	 */
+	Formula(boolean simplified, FormulaFactory factory) {
 		this.simplified = simplified;
+		this.factory = factory;
+	}
+
+	/**
+	 * Tests whether the subformulas of this formula and the given formula are canonical formulas of the same
+	 * factory.  If so, their subformulas are equal if and only if they are the same object.
+	 * 
+	 * @param formula a formula
+	 * @return true if the subformulas of both formulas are canonical formulas of the same factory, false otherwise
+	 */
+	boolean isCanonicalWith(Formula formula) {
+		return this.factory != null && this.factory == formula.factory;
 	}
 	
 	/**
 	 * Returns a simplification of this formula that is semantically equivalent to this formula.
+	 * Each distinct subformula is simplified only once.
+	 *
+	 * @return a simplification of this formula
+	 */
+	public Formula simplify() {
+		return new Simplifier().simplify(this);
+	}
+
+	/**
+	 * Returns a simplification of this formula that is semantically equivalent to this formula,
+	 * where the subformulas are simplified by the given simplifier.
 	 *
+	 * @param simplifier simplifies the subformulas
 	 * @return a simplification of this formula
 	 */
-	public abstract Formula simplify();
+	abstract Formula simplify(Simplifier simplifier);
 
 	/**
 	 * Returns a LaTeX representation of this formula.
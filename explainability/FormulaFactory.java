@@ -0,0 +1,136 @@
+package explainability;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates formulas that are hash-consed: for each formula there is a single canonical instance, so that
+ * syntactically equivalent formulas created by this factory are the same object.  Formulas are built from
+ * canonical subformulas, which makes the formulas a directed acyclic graph in which each distinct subformula
+ * is stored once.  Formulas cannot be modified once created, and their hash codes are computed when they are
+ * created.  Since the subformulas of a formula created by this factory are canonical, testing two such formulas
+ * for equality only compares their hash codes, their shifts and the references to their subformulas.  A factory
+ * may be used by several threads at the same time.
+ */
+public class FormulaFactory {
+	private ConcurrentHashMap<Formula, Formula> formulas;
+
+	/**
+	 * Initializes this factory without any formulas.
+	 */
+	public FormulaFactory() {
+		this.formulas = new ConcurrentHashMap<Formula, Formula>();
+		this.intern(True.TRUE);
+		this.intern(False.FALSE);
+	}
+
+	/**
+	 * Returns the canonical instance of the given formula.
+	 *
+	 * @param formula a formula whose subformulas are canonical
+	 * @return the canonical instance of the given formula
+	 */
+	private Formula intern(Formula formula) {
+		Formula canonical = this.formulas.putIfAbsent(formula, formula);
+		return canonical == null ? formula : canonical;
+	}
+
+	/**
+	 * Returns the formula true.
+	 *
+	 * @return the formula true
+	 */
+	public Formula getTrue() {
+		return True.TRUE;
+	}
+
+	/**
+	 * Returns the formula false.
+	 *
+	 * @return the formula false
+	 */
+	public Formula getFalse() {
+		return False.FALSE;
+	}
+
+	/**
+	 * Returns the formula consisting of the label with the given index.
+	 *
+	 * @param label the index of a label
+	 * @return the formula consisting of the label with the given index
+	 */
+	public Formula label(int label) {
+		return this.intern(new Label(label));
+	}
+
+	/**
+	 * Returns the given formula shifted by the given value.
+	 *
+	 * @param formula a canonical formula
+	 * @param shift the value of the shift
+	 * @return the given formula plus the given value
+	 */
+	public Formula plus(Formula formula, double shift) {
+		return this.intern(new Plus(formula, shift, false, this));
+	}
+
+	/**
+	 * Returns the given formula shifted by the negation of the given value.
+	 *
+	 * @param formula a canonical formula
+	 * @param shift the value of the shift
+	 * @return the given formula minus the given value
+	 */
+	public Formula minus(Formula formula, double shift) {
+		return this.intern(new Minus(formula, shift, false, this));
+	}
+
+	/**
+	 * Returns the next formula with the given subformula.
+	 *
+	 * @param formula a canonical formula
+	 * @return the next formula with the given subformula
+	 */
+	public Formula next(Formula formula) {
+		return this.intern(new Next(formula, false, this));
+	}
+
+	/**
+	 * Returns the conjunction of the given formulas.
+	 *
+	 * @param subformulas canonical formulas
+	 * @return the conjunction of the given formulas
+	 */
+	public Formula and(Collection<? extends Formula> subformulas) {
+		return this.intern(new And(subformulas, false, this));
+	}
+
+	/**
+	 * Returns the disjunction of the given formulas.
+	 *
+	 * @param subformulas canonical formulas
+	 * @return the disjunction of the given formulas
+	 */
+	public Formula or(Collection<? extends Formula> subformulas) {
+		return this.intern(new Or(subformulas, false, this));
+	}
+
+	/**
+	 * Returns the number of distinct formulas created by this factory.
+	 *
+	 * @return the number of distinct formulas created by this factory
+	 */
+	public int size() {
+		return this.formulas.size();
+	}
+
+	/**
+	 * Returns a string representation of the statistics of this factory.
+	 *
+	 * @return a string representation of the statistics of this factory
+	 */
+	@Override
+	public String toString() {
+		return String.format("%d distinct formulas", this.size());
+	}
+}
@@ -0,0 +1,57 @@
+package explainability;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the canonical formulas of FormulaFactory.
+ */
+class FormulaFactoryTest {
+	/**
+	 * Returns a formula with all constructors, created by the given factory.
+	 *
+	 * @param factory a factory
+	 * @param shift the shift of the formula
+	 * @return a formula with all constructors
+	 */
+	private static Formula formula(FormulaFactory factory, double shift) {
+		Formula next = factory.next(factory.or(Arrays.asList(factory.label(0), factory.minus(factory.label(1), 0.25))));
+		return factory.and(Arrays.asList(factory.plus(next, shift), factory.getTrue()));
+	}
+
+	/**
+	 * Tests that a factory returns the same formula for syntactically equivalent formulas.
+	 */
+	@Test
+	public void testCanonical() {
+		FormulaFactory factory = new FormulaFactory();
+		assertSame(formula(factory, 0.5), formula(factory, 0.5));
+		assertNotEquals(formula(factory, 0.5), formula(factory, 0.75));
+		assertEquals(11, factory.size()); // true, false, two labels, minus, or, next, and two plus and and formulas
+	}
+
+	/**
+	 * Tests that formulas of different factories, and formulas that are not created by a factory, are compared
+	 * syntactically.
+	 */
+	@Test
+	public void testEquals() {
+		Formula one = formula(new FormulaFactory(), 0.5);
+		Formula other = formula(new FormulaFactory(), 0.5);
+		assertNotSame(one, other);
+		assertEquals(one, other);
+		assertEquals(one.hashCode(), other.hashCode());
+
+		Formula next = new Next(new Or(Arrays.asList(new Label(0), new Minus(new Label(1), 0.25)), false));
+		Formula created = new And(Arrays.asList(new Plus(next, 0.5), True.TRUE), false);
+		assertEquals(created, one);
+		assertEquals(one, created);
+		assertEquals(created.hashCode(), one.hashCode());
+	}
+}
@@ -0,0 +1,165 @@
+package explainability;
+
+import java.util.Arrays;
+
+/**
+ * The formulas that explain the probabilistic bisimilarity distances of a labelled Markov chain, for each
+ * pair of states and each iteration.  Only the formulas of the active pairs are stored; those of the other
+ * pairs are answered from the probabilistic bisimilarity and the labels.  A table may retain only the formulas
+ * of the last few iterations, in which case the formulas of an iteration are overwritten by those of a later
+ * iteration.
+ */
+public class FormulaTable {
+	private ActivePairs pairs;
+	private FormulaFactory factory;
+	private int number; // the number of formulas for each state pair
+	private Formula[] label; // label[l]: the formula of label l
+	private int[] iteration; // iteration[r]: the iteration of which the formulas are in slot r, or -1 if none
+	private Formula[][] formula; // formula[r][i]: the formula of the active pair with number i for the iteration in slot r
+
+	/**
+	 * Initializes this table for the given active pairs and number of formulas, retaining the formulas
+	 * of all iterations.
+	 *
+	 * @param pairs the active pairs of a labelled Markov chain
+	 * @param number the number of formulas for each state pair
+	 */
+	public FormulaTable(ActivePairs pairs, int number) {
+		this(pairs, number, number + 1);
+	}
+
+	/**
+	 * Initializes this table for the given active pairs and number of formulas, retaining the formulas
+	 * of the given number of most recent iterations.
+	 *
+	 * @param pairs the active pairs of a labelled Markov chain
+	 * @param number the number of formulas for each state pair
+	 * @param retained the number of iterations of which the formulas are retained
+	 * @pre. retained &gt; 0
+	 */
+	public FormulaTable(ActivePairs pairs, int number, int retained) {
+		this(pairs, number, retained, new FormulaFactory());
+	}
+
+	/**
+	 * Initializes this table for the given active pairs and number of formulas, retaining the formulas
+	 * of the given number of most recent iterations.  The formulas of the pairs that are not active are
+	 * created by the given factory.
+	 *
+	 * @param pairs the active pairs of a labelled Markov chain
+	 * @param number the number of formulas for each state pair
+	 * @param retained the number of iterations of which the formulas are retained
+	 * @param factory the factory of the formulas
+	 * @pre. retained &gt; 0
+	 */
+	public FormulaTable(ActivePairs pairs, int number, int retained, FormulaFactory factory) {
+		this.pairs = pairs;
+		this.factory = factory;
+		this.number = number;
+		int numberOfLabels = 0;
+		for (int l : pairs.getLabels()) {
+			numberOfLabels = Math.max(numberOfLabels, l + 1);
+		}
+		this.label = new Formula[numberOfLabels];
+		for (int l = 0; l < numberOfLabels; l++) {
+			this.label[l] = factory.label(l);
+		}
+		this.iteration = new int[retained];
+		Arrays.fill(this.iteration, -1);
+		this.formula = new Formula[retained][pairs.size()];
+	}
+
+	/**
+	 * Returns the active pairs of this table.
+	 *
+	 * @return the active pairs of this table
+	 */
+	public ActivePairs getPairs() {
+		return this.pairs;
+	}
+
+	/**
+	 * Returns the factory of the formulas of this table.
+	 *
+	 * @return the factory of the formulas of this table
+	 */
+	public FormulaFactory getFactory() {
+		return this.factory;
+	}
+
+	/**
+	 * Returns the number of formulas for each state pair.
+	 *
+	 * @return the number of formulas for each state pair
+	 */
+	public int getNumber() {
+		return this.number;
+	}
+
+	/**
+	 * Returns the formula of the given pair of states for the given iteration.
+	 *
+	 * @param s a state
+	 * @param t a state
+	 * @param n an iteration
+	 * @return the formula of the given pair of states for the given iteration
+	 * @throws IllegalArgumentException if the formulas of the given iteration are not retained
+	 */
+	public Formula get(int s, int t, int n) throws IllegalArgumentException {
+		int i = this.pairs.index(s, t);
+		if (i != -1) {
+			int r = n % this.iteration.length;
+			if (this.iteration[r] != n) {
+				throw new IllegalArgumentException("The formulas of iteration " + n + " are not retained");
+			}
+			return this.formula[r][i];
+		} else if (n == 0 || this.pairs.isBisimilar(s, t)) {
+			return this.factory.getTrue();
+		} else {
+			return this.label[this.pairs.getLabels()[t]];
+		}
+	}
+
+	/**
+	 * Makes room for the formulas of the given iteration, replacing those of the oldest retained iteration
+	 * if needed.  This method should be invoked before the formulas of the iteration are set.
+	 *
+	 * @param n an iteration
+	 */
+	void start(int n) {
+		int r = n % this.iteration.length;
+		this.iteration[r] = n;
+		Arrays.fill(this.formula[r], null);
+	}
+
+	/**
+	 * Sets the formula of the active pair with the given number for the given iteration.
+	 *
+	 * @param i the number of an active pair
+	 * @param n an iteration that has been started
+	 * @param formula a formula
+	 */
+	void set(int i, int n, Formula formula) {
+		this.formula[n % this.iteration.length][i] = formula;
+	}
+
+	/**
+	 * Returns the formulas of all pairs of states, indexed by the states and the iteration.
+	 *
+	 * @return the formulas of all pairs of states
+	 * @throws IllegalArgumentException if the formulas of some iteration are not retained
+	 */
+	public Formula[][][] toArray() throws IllegalArgumentException {
+		int numberOfStates = this.pairs.getLabels().length;
+		Formula[][][] formula = new Formula[numberOfStates][numberOfStates][];
+		for (int s = 0; s < numberOfStates; s++) {
+			for (int t = 0; t < numberOfStates; t++) {
+				formula[s][t] = new Formula[this.number + 1];
+				for (int n = 0; n <= this.number; n++) {
+					formula[s][t][n] = this.get(s, t, n);
+				}
+			}
+		}
+		return formula;
+	}
+}
@@ -0,0 +1,159 @@
+package explainability;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The distances and the optimal functions of the active pairs of a labelled Markov chain, one iteration at a
+ * time.  The distances of an iteration follow from the functions of the previous iteration, and the function of
+ * an active pair is an optimal vertex of the Lipschitz polytope for these distances.  States with the same
+ * transition probability distribution give rise to the same linear program.  Each vertex is stored in the given
+ * cache, keyed by the ID of these functions, the IDs of the distributions and the iteration, so that it is
+ * found only once per iteration.  Since the ID of these functions identifies the labelled Markov chain and
+ * hence its distances of each iteration, a cache shared with other functions never returns their vertices.
+ * Before a linear program is solved, the given bounds are checked; if they coincide, no linear program is needed.
+ * Pairs in acyclic parts of the graph of pairs stop changing after a number of iterations; from then on, their
+ * vertex is kept, since the distances only increase and it therefore remains optimal.  Pairs at distance one get
+ * their vertex without a linear program as soon as all pairs of their supports are at distance one.
+ *
+ * <p>
+ * The functions are never modified once computed, so that they can be shared by iterations.
+ */
+class Functions {
+	private static final AtomicInteger ids = new AtomicInteger(); // the number of functions created so far
+
+	private int id; // identifies the labelled Markov chain in the keys of the vertices
+	private double[][] probability;
+	private int[] row; // row[s]: the ID of the transition probability distribution of s
+	private boolean[][] bisimilar;
+	private int[][] stable;
+	private ZeroOne extremes;
+	private ActivePairs pairs;
+	private Cache<List<Integer>, double[]> vertices;
+	private Bounds bounds;
+	private ExecutorService executor;
+	private double[][] distance;
+	private double[][] function; // function[i]: the function of the active pair with number i
+
+	/**
+	 * Initializes the functions of the active pairs of the given labelled Markov chain as zero.
+	 *
+	 * @param probability the transition probabilities of a labelled Markov chain
+	 * @param label the labelling function of a labelled Markov chain
+	 * @param vertices cache of the vertices of the Lipschitz polytope
+	 * @param bounds bounds of the distances of the labelled Markov chain
+	 * @param executor executor of the tasks, or null to compute sequentially
+	 */
+	Functions(double[][] probability, int[] label, Cache<List<Integer>, double[]> vertices, Bounds bounds, ExecutorService executor) {
+		int numberOfStates = probability.length;
+		this.probability = probability;
+		this.row = Distributions.identify(probability);
+		this.bisimilar = ProbabilisticBisimilarity.decide(probability, label);
+		this.stable = new Pairs(probability, label, this.bisimilar).stable(label);
+		this.extremes = new ZeroOne(probability, label, this.bisimilar);
+		this.pairs = new ActivePairs(label, this.bisimilar);
+		this.id = Functions.ids.getAndIncrement();
+		this.vertices = vertices;
+		this.bounds = bounds;
+		this.executor = executor;
+		this.distance = new double[numberOfStates][numberOfStates];
+		this.function = new double[this.pairs.size()][];
+		Arrays.fill(this.function, new double[numberOfStates]);
+	}
+
+	/**
+	 * Returns the active pairs.
+	 *
+	 * @return the active pairs
+	 */
+	ActivePairs getPairs() {
+		return this.pairs;
+	}
+
+	/**
+	 * Returns the distances of the last iteration.  They are overwritten by the next iteration.
+	 *
+	 * @return the distances of the last iteration
+	 */
+	double[][] getDistance() {
+		return this.distance;
+	}
+
+	/**
+	 * Returns the function of the active pair with the given number of the last iteration.
+	 *
+	 * @param i the number of an active pair
+	 * @return the function of the active pair with the given number
+	 */
+	double[] getFunction(int i) {
+		return this.function[i];
+	}
+
+	/**
+	 * Returns the functions of the active pairs of the last iteration.  The returned array is not modified
+	 * by later iterations.
+	 *
+	 * @return the functions of the active pairs of the last iteration
+	 */
+	double[][] getFunctions() {
+		return this.function.clone();
+	}
+
+	/**
+	 * Computes the distances of the given iteration from the functions of the previous one, and the functions
+	 * of the given iteration from these distances.  Both are computed by one task per state s for the pairs
+	 * (s, t).
+	 *
+	 * @param n an iteration
+	 */
+	void next(int n) {
+		int numberOfStates = this.probability.length;
+		Distances.forEachState(numberOfStates, this.executor, s -> {
+			for (int t = 0; t < numberOfStates; t++) {
+				int i = this.pairs.index(s, t);
+				if (i != -1) {
+					this.distance[s][t] = 0;
+					for (int u = 0; u < numberOfStates; u++) {
+						this.distance[s][t] += this.function[i][u] * (this.probability[s][u] - this.probability[t][u]);
+					}
+				} else if (this.bisimilar[s][t]) {
+					this.distance[s][t] = 0;
+				} else {
+					this.distance[s][t] = 1;
+				}
+			}
+		});
+
+		boolean applicable = this.bounds.isApplicable(this.distance);
+		Distances.forEachState(numberOfStates, this.executor, s -> {
+			for (int t = 0; t < numberOfStates; t++) {
+				int i = this.pairs.index(s, t);
+				if (i == -1 || this.stable[s][t] <= n) {
+					continue; // the distance no longer changes, so the vertex of the previous iteration remains optimal
+				}
+				boolean reversible = Vertex.isReversible(this.probability[s], this.probability[t]);
+				double[] one = this.extremes.find(s, t, this.distance);
+				double[] bounded = reversible && one == null ? this.bounds.find(s, t, applicable) : null;
+				if (one != null) {
+					this.function[i] = one;
+				} else if (bounded != null) {
+					this.function[i] = bounded;
+				} else {
+					// only solve for the pair of distributions with the smaller ID first, and reverse otherwise
+					boolean reverse = this.row[t] < this.row[s] && reversible;
+					int first = reverse ? t : s;
+					int second = reverse ? s : t;
+					List<Integer> key = Arrays.asList(this.id, this.row[first], this.row[second], n);
+					double[] vertex = this.vertices.get(key);
+					if (vertex == null) {
+						vertex = Vertex.simplify(Vertex.find(this.distance, this.probability[first], this.probability[second]), this.distance, this.probability[first], this.probability[second]);
+						this.vertices.put(key, vertex);
+					}
+					this.function[i] = reverse ? Vertex.reverse(vertex) : vertex;
+				}
+			}
+		});
+	}
+}
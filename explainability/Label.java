@@ -49,7 +49,7 @@ public class Label extends Formula {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public Formula simplify() {
+	Formula simplify(Simplifier simplifier) {
 		return this;
 	}
 
@@ -24,8 +24,9 @@ package explainability;
  * @author Franck van Breugel
  */
 public class Minus extends Formula {
-	private Formula formula;
-	private double shift;
+	private final Formula formula;
+	private final double shift;
+	private final int hash;
 
 	/**
 	 * Initializes this formula consisting of the given formula shifted by
@@ -49,9 +50,27 @@ public class Minus extends Formula {
 	 * @param whether this formula is simplified
 	 */
 	public Minus(Formula formula, double shift, boolean simplified) {
-		super(simplified);
+		this(formula, shift, simplified, null);
+	}
+
+	/**
+	 * Initializes this formula consisting of the given canonical formula of the given factory shifted by
+	 * the given amount negatively (subtracting).
+	 *
+	 * @param formula a formula
+	 * @param shift   the shift amount
+	 * @pre. shift in [0, 1]
+	 * @param simplified whether this formula is simplified
+	 * @param factory the factory of which the given formula is canonical, or null
+	 */
+	Minus(Formula formula, double shift, boolean simplified, FormulaFactory factory) {
+		super(simplified, factory);
 		this.formula = formula;
 		this.shift = shift;
+		int hash = 17;
+		hash = hash * 31 + formula.hashCode();
+		hash = hash * 31 + Double.hashCode(shift);
+		this.hash = hash;
 	}
 
 	/**
@@ -76,14 +95,14 @@ public class Minus extends Formula {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public Formula simplify() {
-		Formula simpliedFormula = this.formula.simplified ? this.formula : this.formula.simplify();
+	Formula simplify(Simplifier simplifier) {
+		Formula simpliedFormula = simplifier.simplify(this.formula);
 		if (simpliedFormula instanceof True) {
 			return simpliedFormula;
 		} else if (this.shift == 0.0) {
 			return simpliedFormula;
 		} else if (this.shift == 1.0) {
-			return new True();
+			return True.TRUE;
 		} else {
 			return new Minus(simpliedFormula, this.shift, true);
 		}
@@ -106,9 +125,11 @@ public class Minus extends Formula {
 	 * false otherwise.
 	 */
 	public boolean equals(Object object) {
-		if (object != null && object instanceof Minus) {
+		if (object == this) {
+			return true;
+		} else if (object != null && object instanceof Minus && object.hashCode() == this.hashCode()) {
 			Minus other = (Minus) object;
-			return this.formula.equals(other.formula) && this.shift == other.shift;
+			return this.shift == other.shift && (this.isCanonicalWith(other) ? this.formula == other.formula : this.formula.equals(other.formula));
 		} else {
 			return false;
 		}
@@ -120,10 +141,7 @@ public class Minus extends Formula {
 	 * @return the hash code of this formula
 	 */
 	public int hashCode() {
-		int hash = 17;
-		hash = hash * 31 + this.formula.hashCode();
-		hash = hash * 31 + (new Double(this.shift)).hashCode();
-		return hash;
+		return this.hash;
 	}
 
 	/**
@@ -24,7 +24,8 @@ package explainability;
  * @author Franck van Breugel
  */
 public class Next extends Formula {
-	private Formula formula;
+	private final Formula formula;
+	private final int hash;
 
 	/**
 	 * Initializes this next formula with the given subformula.
@@ -42,8 +43,20 @@ public class Next extends Formula {
 	 * @param simplified whether this formula is simplified
 	 */
 	public Next(Formula formula, boolean simplified) {
-		super(simplified);
+		this(formula, simplified, null);
+	}
+
+	/**
+	 * Initializes this next formula with the given canonical subformula of the given factory.
+	 *
+	 * @param formula the subformula
+	 * @param simplified whether this formula is simplified
+	 * @param factory the factory of which the subformula is canonical, or null
+	 */
+	Next(Formula formula, boolean simplified, FormulaFactory factory) {
+		super(simplified, factory);
 		this.formula = formula;
+		this.hash = formula.hashCode() + 1;
 	}
 
 	/**
@@ -59,8 +72,8 @@ public class Next extends Formula {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public Formula simplify() {
-		Formula simplified = this.formula.simplified ? this.formula : this.formula.simplify();
+	Formula simplify(Simplifier simplifier) {
+		Formula simplified = simplifier.simplify(this.formula);
 		if (simplified instanceof True) {
 			return simplified; // Proposition 26(a) and 28(c)
 		} else {
@@ -84,9 +97,11 @@ public class Next extends Formula {
 	 * false otherwise.
 	 */
 	public boolean equals(Object object) {
-		if (object != null && object instanceof Next) {
+		if (object == this) {
+			return true;
+		} else if (object != null && object instanceof Next && object.hashCode() == this.hashCode()) {
 			Next next = (Next) object;
-			return this.formula.equals(next.formula);
+			return this.isCanonicalWith(next) ? this.formula == next.formula : this.formula.equals(next.formula);
 		} else {
 			return false;
 		}
@@ -98,7 +113,7 @@ public class Next extends Formula {
 	 * @return the hash code of this formula
 	 */
 	public int hashCode() {
-		return this.formula.hashCode() + 1;
+		return this.hash;
 	}
 
 
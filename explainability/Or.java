@@ -17,7 +17,12 @@
 
 package explainability;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -27,7 +32,8 @@ import java.util.Set;
  * @author Franck van Breugel
  */
 public class Or extends Formula {
-	private Set<Formula> subformulas;
+	private final Set<Formula> subformulas;
+	private final int hash;
 
 	/**
 	 * Initializes this formula as an empty disjunction.
@@ -42,38 +48,55 @@ public class Or extends Formula {
 	 * @param simplified whether this formula is simplified
 	 */
 	public Or(boolean simplified) {
-		super(simplified);
-		this.subformulas = new HashSet<Formula>();
+		this(Collections.<Formula>emptySet(), simplified);
 	}
 
 	/**
-	 * Returns the subformulas.
-	 *
-	 * @return the subformulas
+	 * Initializes this formula as a disjunction of the given formulas.
+	 * 
+	 * @param subformulas the subformulas
+	 * @param simplified whether this formula is simplified
 	 */
-	public Set<Formula> getSubformulas() {
-		return this.subformulas;
+	public Or(Collection<? extends Formula> subformulas, boolean simplified) {
+		this(subformulas, simplified, null);
 	}
 
 	/**
-	 * Add the given formula to this conjunction.
+	 * Initializes this formula as a disjunction of the given canonical formulas of the given factory.
 	 * 
-	 * @param formula a formula
+	 * @param subformulas the subformulas
+	 * @param simplified whether this formula is simplified
+	 * @param factory the factory of which the subformulas are canonical, or null
 	 */
-	public void add(Formula formula) {
-		this.subformulas.add(formula);
+	Or(Collection<? extends Formula> subformulas, boolean simplified, FormulaFactory factory) {
+		super(simplified, factory);
+		this.subformulas = Collections.unmodifiableSet(new HashSet<Formula>(subformulas));
+		int hash = 17; // independent of the order in which the subformulas are iterated
+		for (Formula subformula : this.subformulas) {
+			hash += subformula.hashCode();
+		}
+		this.hash = hash;
+	}
+
+	/**
+	 * Returns the subformulas.
+	 *
+	 * @return the subformulas
+	 */
+	public Set<Formula> getSubformulas() {
+		return this.subformulas;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public Formula simplify() {
+	Formula simplify(Simplifier simplifier) {
 		// simplify each subformula, exclude False, simplify a disjunction to True if it contains True, simplify an empty disjunction to False
-		Or simplification = new Or();
+		Set<Formula> simplification = new HashSet<Formula>();
 		boolean isEmpty = true; // disjunction is empty
 		for (Formula subformula : this.getSubformulas()) {
-			Formula simplified = subformula.simplified ? subformula : subformula.simplify();
+			Formula simplified = simplifier.simplify(subformula);
 			if (simplified instanceof True) {
 				return simplified;
 			} else if (!(simplified instanceof False)) {
@@ -82,21 +105,21 @@ public class Or extends Formula {
 			}
 		}
 		if (isEmpty) {
-			return new False();
+			return False.FALSE;
 		}
 
 		// exclude each subformula for which there is another subformula that is smaller or equal
-		Or furtherSimplification = new Or(true);
-		for (Formula one : simplification.getSubformulas()) {
+		List<Formula> furtherSimplification = new ArrayList<Formula>();
+		for (Formula one : simplification) {
 			boolean found = false; // another formula that is smaller than or equal to one has been found
-			for (Formula other : simplification.getSubformulas()) {
-				found = found || (one != other && Compare.isSmaller(other, one));
+			for (Formula other : simplification) {
+				found = found || (one != other && simplifier.isSmaller(other, one));
 			}
 			if (!found) {
 				furtherSimplification.add(one);
 			}
 		}
-		return furtherSimplification;
+		return new Or(furtherSimplification, true);
 	}
 
 	/**
@@ -131,9 +154,18 @@ public class Or extends Formula {
 	 * false otherwise.
 	 */
 	public boolean equals(Object object) {		
-		if (object != null && object instanceof Or) {
+		if (object == this) {
+			return true;
+		} else if (object != null && object instanceof Or && object.hashCode() == this.hashCode()) {
 			Or other = (Or) object;
-			return this.subformulas.equals(other.subformulas);
+			if (this.isCanonicalWith(other)) {
+				// canonical subformulas are equal if and only if they are the same object
+				Set<Formula> same = Collections.newSetFromMap(new IdentityHashMap<Formula, Boolean>());
+				same.addAll(other.subformulas);
+				return this.subformulas.size() == same.size() && same.containsAll(this.subformulas);
+			} else {
+				return this.subformulas.equals(other.subformulas);
+			}
 		} else {
 			return false;
 		}
@@ -145,11 +177,7 @@ public class Or extends Formula {
 	 * @return the hash code of this formula
 	 */
 	public int hashCode() {
-		int hash = 17;
-		for (Formula subformula : this.subformulas) {
-			hash = hash * 31 + subformula.hashCode();
-		}
-		return hash;
+		return this.hash;
 	}
 
 	/**
@@ -0,0 +1,195 @@
+package explainability;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The graph of pairs of states of a labelled Markov chain.  There is an edge from the pair (s, t) to
+ * the pair (u, v) if s can transition to u and t can transition to v.  The distance of a pair only
+ * depends on the distances of its successors.  The strongly connected components of the graph are
+ * found by Tarjan's algorithm, in reverse topological order, which allows the pairs in acyclic parts
+ * of the graph to be recognized.
+ */
+public class Pairs {
+	private static final double EPSILON = 0.0000000001;
+
+	private int numberOfStates;
+	private int[][] support; // support[s]: the states to which s can transition
+	private boolean[] node; // node[s * numberOfStates + t]: whether (s, t), with s < t, is a node of the graph
+
+	/**
+	 * Initializes the graph of the pairs of states of the given labelled Markov chain that have the
+	 * same label and are not bisimilar.  The distances of the other pairs are known.
+	 *
+	 * @param probability the transition probabilities of a labelled Markov chain
+	 * @param label the labelling function of a labelled Markov chain
+	 * @param bisimilar the probabilistic bisimilarity of the labelled Markov chain
+	 */
+	public Pairs(double[][] probability, int[] label, boolean[][] bisimilar) {
+		this.numberOfStates = probability.length;
+		this.support = new int[this.numberOfStates][];
+		for (int s = 0; s < this.numberOfStates; s++) {
+			int size = 0;
+			int[] support = new int[this.numberOfStates];
+			for (int u = 0; u < this.numberOfStates; u++) {
+				if (probability[s][u] > EPSILON) {
+					support[size++] = u;
+				}
+			}
+			this.support[s] = Arrays.copyOf(support, size);
+		}
+		this.node = new boolean[this.numberOfStates * this.numberOfStates];
+		for (int s = 0; s < this.numberOfStates; s++) {
+			for (int t = s + 1; t < this.numberOfStates; t++) {
+				this.node[s * this.numberOfStates + t] = label[s] == label[t] && !bisimilar[s][t];
+			}
+		}
+	}
+
+	/**
+	 * Returns the node of the given pair of states.
+	 *
+	 * @param u a state
+	 * @param v a state
+	 * @return the node of the given pair of states
+	 */
+	private int node(int u, int v) {
+		return Math.min(u, v) * this.numberOfStates + Math.max(u, v);
+	}
+
+	/**
+	 * Returns the successors of the given node that are nodes of this graph.
+	 *
+	 * @param p a node
+	 * @return the successors of the given node
+	 */
+	private int[] successors(int p) {
+		int s = p / this.numberOfStates;
+		int t = p % this.numberOfStates;
+		int[] successors = new int[this.support[s].length * this.support[t].length];
+		int size = 0;
+		for (int u : this.support[s]) {
+			for (int v : this.support[t]) {
+				if (this.node[node(u, v)]) {
+					successors[size++] = node(u, v);
+				}
+			}
+		}
+		return Arrays.copyOf(successors, size);
+	}
+
+	/**
+	 * Returns the strongly connected components of this graph in reverse topological order.  The depth-first
+	 * search is iterative, since the number of pairs is quadratic in the number of states.
+	 *
+	 * @return the strongly connected components of this graph in reverse topological order
+	 */
+	public List<int[]> components() {
+		int size = this.node.length;
+		int[][] successors = new int[size][];
+		int[] number = new int[size]; // the order in which the nodes are visited, starting at 1
+		int[] low = new int[size];
+		boolean[] onStack = new boolean[size];
+		int[] stack = new int[size];
+		int top = 0;
+		int[] path = new int[size]; // the nodes of the depth-first search path
+		int[] next = new int[size]; // the next successor to be considered for each node of the path
+		int count = 0;
+
+		List<int[]> components = new ArrayList<int[]>();
+		for (int root = 0; root < size; root++) {
+			if (!this.node[root] || number[root] != 0) {
+				continue;
+			}
+			int depth = 0;
+			path[depth] = root;
+			next[depth] = 0;
+			number[root] = low[root] = ++count;
+			successors[root] = successors(root);
+			stack[top++] = root;
+			onStack[root] = true;
+			while (depth >= 0) {
+				int p = path[depth];
+				if (next[depth] < successors[p].length) {
+					int q = successors[p][next[depth]++];
+					if (number[q] == 0) {
+						number[q] = low[q] = ++count;
+						successors[q] = successors(q);
+						stack[top++] = q;
+						onStack[q] = true;
+						depth++;
+						path[depth] = q;
+						next[depth] = 0;
+					} else if (onStack[q]) {
+						low[p] = Math.min(low[p], number[q]);
+					}
+				} else {
+					if (low[p] == number[p]) {
+						int bottom = top;
+						do {
+							bottom--;
+						} while (stack[bottom] != p);
+						int[] component = Arrays.copyOfRange(stack, bottom, top);
+						for (int q : component) {
+							onStack[q] = false;
+						}
+						top = bottom;
+						components.add(component);
+					}
+					depth--;
+					if (depth >= 0) {
+						low[path[depth]] = Math.min(low[path[depth]], low[p]);
+					}
+				}
+			}
+		}
+		return components;
+	}
+
+	/**
+	 * Returns for each pair of states the iteration from which on its distance no longer changes, or
+	 * Integer.MAX_VALUE if it may keep changing.  The distances start from zero.  States with different
+	 * labels are at distance one from the first iteration on and bisimilar states remain at distance zero.
+	 * A pair that forms a strongly connected component on its own, without an edge to itself, is stable
+	 * one iteration after all its successors.  The pairs of the other components are not known to become
+	 * stable, and neither are the pairs that can reach them.
+	 *
+	 * @param label the labelling function of a labelled Markov chain
+	 * @return for each pair of states the iteration from which on its distance no longer changes
+	 */
+	public int[][] stable(int[] label) {
+		int[][] stable = new int[this.numberOfStates][this.numberOfStates];
+		for (int s = 0; s < this.numberOfStates; s++) {
+			for (int t = 0; t < this.numberOfStates; t++) {
+				if (label[s] != label[t]) {
+					stable[s][t] = 1;
+				}
+			}
+		}
+		for (int[] component : this.components()) {
+			int p = component[0];
+			int iteration = Integer.MAX_VALUE;
+			if (component.length == 1 && Arrays.stream(successors(p)).noneMatch(q -> q == p)) {
+				int s = p / this.numberOfStates;
+				int t = p % this.numberOfStates;
+				iteration = 0;
+				for (int u : this.support[s]) {
+					for (int v : this.support[t]) {
+						iteration = Math.max(iteration, stable[u][v]);
+					}
+				}
+				if (iteration != Integer.MAX_VALUE) {
+					iteration++;
+				}
+			}
+			for (int q : component) {
+				int s = q / this.numberOfStates;
+				int t = q % this.numberOfStates;
+				stable[s][t] = iteration;
+				stable[t][s] = iteration;
+			}
+		}
+		return stable;
+	}
+}
@@ -34,7 +34,7 @@ public class ProbabilisticBisimilarity {
 	 * A class to represent the nodes of a splay tree.  Each node of the tree stores a block and its probability
 	 * of transitioning to the current splitter.
 	 */
-	private static class Node {
+	private class Node {
 		private Block block;
 		private double probability;
 		private Node parent;
@@ -60,7 +60,7 @@ public class ProbabilisticBisimilarity {
 	/**
 	 * A splay tree.  Each node of the tree stores a block and its probability of transitioning to the current splitter.
 	 */
-	private static class SplayTree {
+	private class SplayTree {
 		private Node root;
 
 		/**
@@ -195,9 +195,7 @@ public class ProbabilisticBisimilarity {
 	/**
 	 * A class to represent the blocks of the partition.
 	 */
-	private static class Block {
-		private static int numberOfBlocks = 0;
-		
+	private class Block {
 		private int id; // for easier hashCode and equals methods
 		private LinkedList<State> elements;
 		private SplayTree tree;
@@ -267,8 +265,22 @@ public class ProbabilisticBisimilarity {
 	/**
 	 * Partition of the states into blocks.
 	 */
-	private static LinkedList<Block> partition;
-	
+	private LinkedList<Block> partition;
+
+	/**
+	 * The number of blocks created so far.
+	 */
+	private int numberOfBlocks;
+
+	/**
+	 * Initializes the partition as empty.  Each decision uses its own partition, so that decisions for different
+	 * labelled Markov chains, possibly at the same time, do not interfere.
+	 */
+	private ProbabilisticBisimilarity() {
+		this.partition = new LinkedList<Block>();
+		this.numberOfBlocks = 0;
+	}
+
 	/**
 	 * Decides probabilistic bisimilarity for the labelled Markov chain.
 	 * 
@@ -278,6 +290,18 @@ public class ProbabilisticBisimilarity {
 	 * the states are probabilistic bisimilar
 	 */
 	public static boolean[][] decide(double[][] probability, int[] label) {
+		return new ProbabilisticBisimilarity().refine(probability, label);
+	}
+
+	/**
+	 * Decides probabilistic bisimilarity for the labelled Markov chain by refining the partition of this object.
+	 * 
+	 * @param probability the transition probabilities of the labelled Markov chain
+	 * @param label the state labelling of the labelled Markov chain
+	 * @return a two dimensional boolean array that captures for each state pair whether
+	 * the states are probabilistic bisimilar
+	 */
+	private boolean[][] refine(double[][] probability, int[] label) {
 		int numberOfStates = label.length;
 		
 		// determine the number of different labels
@@ -287,9 +311,6 @@ public class ProbabilisticBisimilarity {
 		}
 		int numberOfLabels = labels.size();
 		
-		// start with an empty partition
-		partition = new LinkedList<Block>();
-		
 		// create an empty block for each label and add it to the partition
 		for (int i = 0; i < numberOfLabels; i++) {
 			new Block();
@@ -0,0 +1,148 @@
+package explainability;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Simplifies formulas, remembering the simplification of each formula it has simplified, including the
+ * subformulas.  Formulas are compared by identity, so that looking up a formula takes constant time.  Since
+ * the formulas that explain the distances share their subformulas, each distinct node of the shared formulas
+ * is simplified only once, no matter how many formulas it is part of or how often it is simplified.
+ *
+ * <p>
+ * The formulas of an iteration consist of those of the previous iteration.  Hence, a simplifier for an
+ * iteration, obtained by next, also remembers the simplifications of the previous iteration, but not those of
+ * earlier iterations, so that the number of simplifications it remembers does not grow with the number of
+ * iterations.  The simplified formulas themselves may still share subformulas with earlier iterations.  A
+ * simplifier should not be used by several threads at the same time.
+ *
+ * <p>
+ * The subformulas of a conjunction or disjunction that are smaller than another are excluded by means of a
+ * Compare, which remembers the comparisons.  The simplifiers obtained by next share this Compare, since the
+ * simplified subformulas of an iteration are compared again as part of the next one.
+ */
+public class Simplifier {
+	private static final int CAPACITY = 1 << 16; // the default number of comparisons that are remembered
+	private Map<Formula, Formula> simplification; // the simplifications of the formulas simplified by this simplifier
+	private Map<Formula, Formula> previous; // the simplifications of the previous simplifier
+	private Compare compare;
+	private long hits;
+	private long misses;
+
+	/**
+	 * Initializes this simplifier without any simplifications and with a Compare that remembers the results of
+	 * at most CAPACITY comparisons.
+	 */
+	public Simplifier() {
+		this(new Compare(CAPACITY));
+	}
+
+	/**
+	 * Initializes this simplifier without any simplifications and with the given Compare.
+	 *
+	 * @param compare the Compare used to exclude subformulas
+	 */
+	public Simplifier(Compare compare) {
+		this(new IdentityHashMap<Formula, Formula>(), compare);
+	}
+
+	/**
+	 * Initializes this simplifier with the simplifications of a previous simplifier.
+	 *
+	 * @param previous the simplifications of the previous simplifier
+	 * @param compare the Compare used to exclude subformulas
+	 */
+	private Simplifier(Map<Formula, Formula> previous, Compare compare) {
+		this.simplification = new IdentityHashMap<Formula, Formula>();
+		this.previous = previous;
+		this.compare = compare;
+		this.hits = 0;
+		this.misses = 0;
+	}
+
+	/**
+	 * Returns a simplifier that remembers the simplifications of this simplifier, but not those of the
+	 * simplifiers this one was obtained from.
+	 *
+	 * @return a simplifier that remembers the simplifications of this simplifier
+	 */
+	public Simplifier next() {
+		return new Simplifier(this.simplification, this.compare);
+	}
+
+	/**
+	 * Tests whether smaller is smaller than bigger, as Compare.isSmaller.
+	 *
+	 * @param smaller a simplified formula
+	 * @param bigger a simplified formula
+	 * @return approximation of whether smaller is smaller than bigger
+	 */
+	boolean isSmaller(Formula smaller, Formula bigger) {
+		return this.compare.test(smaller, bigger);
+	}
+
+	/**
+	 * Returns a simplification of the given formula that is semantically equivalent to the given formula.
+	 * Repeated calls for the same formula return the same simplification.
+	 *
+	 * @param formula a formula
+	 * @return a simplification of the given formula
+	 */
+	public Formula simplify(Formula formula) {
+		if (formula.simplified) {
+			return formula;
+		}
+		Formula simplified = this.simplification.get(formula);
+		if (simplified == null) {
+			simplified = this.previous.get(formula);
+			if (simplified == null) {
+				this.misses++;
+				simplified = formula.simplify(this);
+			} else {
+				this.hits++;
+			}
+			this.simplification.put(formula, simplified);
+		} else {
+			this.hits++;
+		}
+		return simplified;
+	}
+
+	/**
+	 * Returns the number of formulas of which this simplifier remembers the simplification.
+	 *
+	 * @return the number of formulas of which this simplifier remembers the simplification
+	 */
+	public int size() {
+		return this.simplification.size();
+	}
+
+	/**
+	 * Returns the number of simplifications that were found.
+	 *
+	 * @return the number of simplifications that were found
+	 */
+	public long getHits() {
+		return this.hits;
+	}
+
+	/**
+	 * Returns the number of formulas that had to be simplified.
+	 *
+	 * @return the number of formulas that had to be simplified
+	 */
+	public long getMisses() {
+		return this.misses;
+	}
+
+	/**
+	 * Returns a string representation of the statistics of this simplifier.
+	 *
+	 * @return a string representation of the statistics of this simplifier
+	 */
+	@Override
+	public String toString() {
+		long lookups = this.hits + this.misses;
+		return String.format("%d hits, %d misses, hit rate %.3f", this.hits, this.misses, lookups == 0 ? 0 : (double) this.hits / lookups);
+	}
+}
@@ -24,6 +24,11 @@ package explainability;
  * @author Franck van Breugel
  */
 public class True extends Formula {
+	/**
+	 * The formula true.  Since it has no state, it can be shared.
+	 */
+	public static final True TRUE = new True();
+
 	/**
 	 * Initializes this formula.
 	 */
@@ -35,7 +40,7 @@ public class True extends Formula {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public Formula simplify() {
+	Formula simplify(Simplifier simplifier) {
 		return this;
 	}
 
@@ -55,7 +60,7 @@ public class True extends Formula {
 	 * false otherwise.
 	 */
 	public boolean equals(Object object) {
-		return object != null && object instanceof True;
+		return object == this || object != null && object instanceof True;
 	}
 	
 	/**
@@ -17,8 +17,10 @@
 
 package explainability;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.math3.optim.linear.LinearConstraint;
 import org.apache.commons.math3.optim.linear.LinearConstraintSet;
@@ -35,7 +37,8 @@ import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
  */
 public class Vertex {
 	/**
-	 * Returns a vertex of the Lipschitz polytope.
+	 * Returns a vertex of the Lipschitz polytope.  The constraints are handed to the solver in a fixed order,
+	 * so that the same arguments always give rise to the same vertex.
 	 * 
 	 * @param distance the distances of the states of the labelled Markov chain
 	 * @param first the transition probabilities of a state of the labelled Markov chain
@@ -53,7 +56,7 @@ public class Vertex {
 		LinearObjectiveFunction objectiveFunction = new LinearObjectiveFunction(coefficient, 0.0);
 
 		// constraints
-		Set<LinearConstraint> constraintSet = new HashSet<LinearConstraint>();
+		List<LinearConstraint> constraintSet = new ArrayList<LinearConstraint>();
 		for (int u = 0; u < numberOfStates; u++) {
 			for (int v = 0; v < numberOfStates; v++) {
 				coefficient = new double[numberOfStates];
@@ -75,4 +78,153 @@ public class Vertex {
 		SimplexSolver solver = new SimplexSolver();
 		return solver.optimize(objectiveFunction, constraints, GoalType.MAXIMIZE).getPoint();
 	}
+
+	/**
+	 * Returns an optimal function with few distinct values, starting from the given optimal vertex.
+	 * The linear program is usually degenerate, so many functions attain the optimum.  Each state in
+	 * turn is moved to 0, to 1, or to one of the most frequent values of the function, provided that the 
+	 * Lipschitz constraints remain satisfied and the value of the objective function does not decrease.
+	 * Since every distinct value gives rise to more subformulas, the resulting explanation is smaller.
+	 * The decrease of the objective function is measured from the given vertex rather than from the previous
+	 * move, so that the tolerance for rounding errors does not accumulate over the moves.  Finally, the
+	 * resulting function is checked against the constraints of the linear program; if it violates any of
+	 * them by more than the tolerance, the given vertex is returned instead.
+	 * 
+	 * @param vertex an optimal vertex of the Lipschitz polytope
+	 * @param distance the distances of the states of the labelled Markov chain
+	 * @param first the transition probabilities of a state of the labelled Markov chain
+	 * @param second the transition probabilities of a state of the labelled Markov chain
+	 * @return an optimal function with few distinct values
+	 */
+	public static double[] simplify(double[] vertex, double[][] distance, double[] first, double[] second) {
+		final double EPSILON = 0.0000000001;
+
+		int numberOfStates = vertex.length;
+		double[] function = new double[numberOfStates];
+		for (int u = 0; u < numberOfStates; u++) {
+			function[u] = vertex[u];
+			if (Math.abs(function[u]) < EPSILON) {
+				function[u] = 0; // mitigate rounding errors
+			} else if (Math.abs(function[u] - 1) < EPSILON) {
+				function[u] = 1;
+			}
+		}
+
+		double optimum = objective(vertex, first, second);
+		double value = objective(function, first, second);
+		boolean changed = true;
+		for (int round = 0; changed && round < numberOfStates; round++) {
+			changed = false;
+
+			// candidate values: 0 and 1 first, followed by the values of the function by decreasing frequency
+			Map<Double, Integer> frequency = new HashMap<Double, Integer>();
+			for (int u = 0; u < numberOfStates; u++) {
+				frequency.merge(function[u], 1, Integer::sum);
+			}
+			List<Double> candidates = new ArrayList<Double>(frequency.keySet());
+			candidates.remove(0.0);
+			candidates.remove(1.0);
+			candidates.sort((x, y) -> frequency.get(y) - frequency.get(x));
+			candidates.add(0, 1.0);
+			candidates.add(0, 0.0);
+
+			for (int u = 0; u < numberOfStates; u++) {
+				for (double candidate : candidates) {
+					if (candidate == function[u]) {
+						break; // the current value is at least as preferable as the remaining candidates
+					}
+					double change = (first[u] - second[u]) * (candidate - function[u]);
+					if (value + change >= optimum - EPSILON && isLipschitz(function, distance, u, candidate, EPSILON)) {
+						function[u] = candidate;
+						value += change;
+						changed = true;
+						break;
+					}
+				}
+			}
+		}
+
+		if (objective(function, first, second) < optimum - EPSILON) {
+			return vertex.clone();
+		}
+		for (int u = 0; u < numberOfStates; u++) {
+			if (function[u] < 0 || function[u] > 1 || !isLipschitz(function, distance, u, function[u], EPSILON)) {
+				return vertex.clone();
+			}
+		}
+		return function;
+	}
+
+	/**
+	 * Returns the value of the objective function of the linear program for the given function.
+	 * 
+	 * @param function a function of the Lipschitz polytope
+	 * @param first the transition probabilities of a state of the labelled Markov chain
+	 * @param second the transition probabilities of a state of the labelled Markov chain
+	 * @return the value of the objective function for the given function
+	 */
+	private static double objective(double[] function, double[] first, double[] second) {
+		double value = 0;
+		for (int u = 0; u < function.length; u++) {
+			value += (first[u] - second[u]) * function[u];
+		}
+		return value;
+	}
+
+	/**
+	 * Tests whether the given function, with the value of the given state replaced by the given value,
+	 * satisfies the Lipschitz constraints for that state.
+	 * 
+	 * @param function a function of the Lipschitz polytope
+	 * @param distance the distances of the states of the labelled Markov chain
+	 * @param state a state
+	 * @param value the new value of the state
+	 * @param epsilon the tolerance for rounding errors
+	 * @return true if the Lipschitz constraints for the state are satisfied, false otherwise
+	 */
+	private static boolean isLipschitz(double[] function, double[][] distance, int state, double value, double epsilon) {
+		for (int v = 0; v < function.length; v++) {
+			if (v != state && (value - function[v] > distance[state][v] + epsilon || function[v] - value > distance[v][state] + epsilon)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Tests whether a vertex found for the given transition probabilities can be reversed,
+	 * that is, whether both distributions have the same total probability.  Only then the 
+	 * objective functions of the pair and the reversed pair differ by a constant.
+	 * 
+	 * @param first the transition probabilities of a state of the labelled Markov chain
+	 * @param second the transition probabilities of a state of the labelled Markov chain
+	 * @return true if a vertex for (first, second) gives rise to a vertex for (second, first),
+	 * false otherwise
+	 */
+	public static boolean isReversible(double[] first, double[] second) {
+		final double EPSILON = 0.0000000001;
+
+		double sum = 0;
+		for (int u = 0; u < first.length; u++) {
+			sum += first[u] - second[u];
+		}
+		return Math.abs(sum) < EPSILON;
+	}
+
+	/**
+	 * Returns the vertex of the Lipschitz polytope for the reversed pair.  If f is an 
+	 * optimal vertex for (first, second), then 1 - f is an optimal vertex for 
+	 * (second, first), provided that the pair is reversible. 
+	 * 
+	 * @param vertex a vertex of the Lipschitz polytope
+	 * @return the vertex 1 - vertex of the Lipschitz polytope
+	 * @pre. isReversible(first, second)
+	 */
+	public static double[] reverse(double[] vertex) {
+		double[] reversed = new double[vertex.length];
+		for (int u = 0; u < vertex.length; u++) {
+			reversed[u] = 1 - vertex[u];
+		}
+		return reversed;
+	}
 }
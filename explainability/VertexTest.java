@@ -0,0 +1,66 @@
+package explainability;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the simplification of the vertices of the Lipschitz polytope.
+ */
+class VertexTest {
+	private static final double EPSILON = 0.0000000001;
+	private static final int STATES = 40;
+
+	/**
+	 * Tests that moving many states whose values are almost the same neither decreases the value of the
+	 * objective function nor violates the Lipschitz constraints by more than the tolerance.  Half of the states
+	 * have value one half and do not contribute to the objective function.  The values of the other half are
+	 * slightly larger, such that moving any one of them to one half decreases the value of the objective
+	 * function by less than the tolerance, but moving all of them decreases it by much more.
+	 */
+	@Test
+	public void testNearTies() {
+		double[] vertex = new double[STATES];
+		double[] first = new double[STATES];
+		double[] second = new double[STATES];
+		double[][] distance = new double[STATES][STATES];
+		for (int u = 0; u < STATES; u++) {
+			if (u < STATES / 2) {
+				vertex[u] = 0.5;
+				first[u] = 1.0 / STATES;
+				second[u] = 1.0 / STATES;
+			} else {
+				vertex[u] = 0.5 + 0.9 * EPSILON * STATES / 2 - u * EPSILON / 1000;
+				first[u] = 2.0 / STATES;
+			}
+			for (int v = 0; v < STATES; v++) {
+				distance[u][v] = u == v ? 0 : 0.01;
+			}
+		}
+
+		double[] function = Vertex.simplify(vertex, distance, first, second);
+		assertTrue(objective(function, first, second) >= objective(vertex, first, second) - EPSILON);
+		for (int u = 0; u < STATES; u++) {
+			assertTrue(function[u] >= 0 && function[u] <= 1);
+			for (int v = 0; v < STATES; v++) {
+				assertTrue(function[u] - function[v] <= distance[u][v] + EPSILON);
+			}
+		}
+	}
+
+	/**
+	 * Returns the value of the objective function of the linear program for the given function.
+	 *
+	 * @param function a function
+	 * @param first the transition probabilities of a state
+	 * @param second the transition probabilities of a state
+	 * @return the value of the objective function for the given function
+	 */
+	private static double objective(double[] function, double[] first, double[] second) {
+		double value = 0;
+		for (int u = 0; u < function.length; u++) {
+			value += (first[u] - second[u]) * function[u];
+		}
+		return value;
+	}
+}
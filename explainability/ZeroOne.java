@@ -0,0 +1,145 @@
+package explainability;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Decides which pairs of states of a labelled Markov chain have distance zero and which have distance one,
+ * without solving any linear program.  The pairs at distance zero are the probabilistic bisimilar ones.  A pair
+ * of states with the same label has distance less than one if and only if it can reach a bisimilar pair in the
+ * graph of pairs with the same label, where there is an edge from (s, t) to (u, v) if s can transition to u and
+ * t can transition to v.  All other pairs have distance one.
+ *
+ * <p>
+ * Qiyi Tang and Franck van Breugel.  Deciding probabilistic bisimilarity distance one for labelled Markov chains.
+ * In <i>Proceedings of CAV</i>, 2018.
+ */
+public class ZeroOne {
+	private static final double EPSILON = 0.0000000001;
+
+	private int[] label;
+	private int[][] support; // support[s]: the states to which s can transition
+	private boolean[][] zero;
+	private boolean[][] one;
+
+	/**
+	 * Decides the pairs of states at distance zero and one of the given labelled Markov chain.
+	 *
+	 * @param probability the transition probabilities of a labelled Markov chain
+	 * @param label the labelling function of a labelled Markov chain
+	 * @param bisimilar the probabilistic bisimilarity of the labelled Markov chain
+	 */
+	public ZeroOne(double[][] probability, int[] label, boolean[][] bisimilar) {
+		int numberOfStates = probability.length;
+		this.label = label;
+		this.zero = bisimilar;
+
+		List<List<Integer>> predecessors = new ArrayList<List<Integer>>();
+		for (int u = 0; u < numberOfStates; u++) {
+			predecessors.add(new ArrayList<Integer>());
+		}
+		this.support = new int[numberOfStates][];
+		for (int s = 0; s < numberOfStates; s++) {
+			int size = 0;
+			int[] support = new int[numberOfStates];
+			for (int u = 0; u < numberOfStates; u++) {
+				if (probability[s][u] > EPSILON) {
+					support[size++] = u;
+					predecessors.get(u).add(s);
+				}
+			}
+			this.support[s] = Arrays.copyOf(support, size);
+		}
+
+		// backward search from the bisimilar pairs through the pairs with the same label
+		boolean[][] reaches = new boolean[numberOfStates][numberOfStates];
+		LinkedList<int[]> queue = new LinkedList<int[]>();
+		for (int s = 0; s < numberOfStates; s++) {
+			for (int t = 0; t < numberOfStates; t++) {
+				if (bisimilar[s][t]) {
+					reaches[s][t] = true;
+					queue.add(new int[] { s, t });
+				}
+			}
+		}
+		while (!queue.isEmpty()) {
+			int[] pair = queue.remove();
+			for (int s : predecessors.get(pair[0])) {
+				for (int t : predecessors.get(pair[1])) {
+					if (label[s] == label[t] && !reaches[s][t]) {
+						reaches[s][t] = true;
+						queue.add(new int[] { s, t });
+					}
+				}
+			}
+		}
+
+		this.one = new boolean[numberOfStates][numberOfStates];
+		for (int s = 0; s < numberOfStates; s++) {
+			for (int t = 0; t < numberOfStates; t++) {
+				this.one[s][t] = !reaches[s][t];
+			}
+		}
+	}
+
+	/**
+	 * Tests whether the given states are at distance zero, that is, whether they are probabilistic bisimilar.
+	 *
+	 * @param s a state
+	 * @param t a state
+	 * @return true if the given states are at distance zero, false otherwise
+	 */
+	public boolean isZero(int s, int t) {
+		return this.zero[s][t];
+	}
+
+	/**
+	 * Tests whether the given states are at distance one.
+	 *
+	 * @param s a state
+	 * @param t a state
+	 * @return true if the given states are at distance one, false otherwise
+	 */
+	public boolean isOne(int s, int t) {
+		return this.one[s][t];
+	}
+
+	/**
+	 * Returns an optimal vertex of the Lipschitz polytope for the given pair of states with the same label, if
+	 * the distance of the next iteration is one, and null otherwise.  Starting from zero, the distance of a pair
+	 * becomes one exactly when the distances of all pairs in the product of the supports are one, which can only
+	 * happen for pairs at distance one.  In that case, the function that maps a state to its distance to the
+	 * support of t, bounded by one, is one on the support of s and zero on the support of t.
+	 *
+	 * @param s a state
+	 * @param t a state
+	 * @param distance the distances of the current iteration
+	 * @return an optimal vertex of the Lipschitz polytope if the distance of the next iteration is one,
+	 * null otherwise
+	 */
+	public double[] find(int s, int t, double[][] distance) {
+		if (!this.one[s][t]) {
+			return null;
+		}
+		for (int u : this.support[s]) {
+			for (int v : this.support[t]) {
+				if (distance[u][v] < 1 - EPSILON) {
+					return null;
+				}
+			}
+		}
+		double[] vertex = new double[this.label.length];
+		for (int w = 0; w < this.label.length; w++) {
+			vertex[w] = 1;
+			for (int v : this.support[t]) {
+				vertex[w] = Math.min(vertex[w], distance[w][v]);
+			}
+		}
+		for (int u : this.support[s]) {
+			vertex[u] = 1;
+		}
+		return vertex;
+	}
+}